@@ -0,0 +1,28 @@
+package com.proyectouno.demo.Controller;
+
+import com.proyectouno.demo.service.CatalogoCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Endpoints de diagnóstico del catálogo (estado de las cachés en memoria).
+ */
+@RestController
+@RequestMapping("/api/catalogo")
+@CrossOrigin(origins = {"http://127.0.0.1:5500", "http://localhost:5500", " http://localhost:5173/", " http://127.0.0.1:5173/"})
+public class CatalogoController {
+
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    /**
+     * Contadores de aciertos, fallos y desalojos de la caché del catálogo.
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getEstadisticasCache() {
+        return ResponseEntity.ok(catalogoCache.estadisticas());
+    }
+}
@@ -3,15 +3,19 @@ package com.proyectouno.demo.Controller;
 import com.proyectouno.demo.DTO.CategoriaDTO;
 import com.proyectouno.demo.models.Categoria;
 import com.proyectouno.demo.repository.CategoriaRepository;
+import com.proyectouno.demo.service.CatalogoCache;
+import com.proyectouno.demo.service.CatalogoCambiadoEvent;
+import com.proyectouno.demo.service.CatalogoVersion;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api")
@@ -21,19 +25,35 @@ public class CategoriaController {
     @Autowired
     private CategoriaRepository categoriaRepository;
 
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CatalogoVersion catalogoVersion;
+
     @GetMapping("/categorias")
-    public ResponseEntity<List<CategoriaDTO>> getAllCategorias() {
-        List<CategoriaDTO> categorias = categoriaRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public ResponseEntity<List<CategoriaDTO>> getAllCategorias(WebRequest webRequest) {
+        // Lectura condicional: si el cliente ya tiene esta versión se responde 304 sin ir a la BD
+        if (webRequest.checkNotModified(catalogoVersion.etag("categorias"), catalogoVersion.getUltimaModificacion())) {
+            return null;
+        }
+        List<CategoriaDTO> categorias = catalogoCache.listasCategorias().getOrLoad("todas", k ->
+                categoriaRepository.findAllDTO());
         return ResponseEntity.ok(categorias);
     }
 
     @GetMapping("/categorias/{id}")
-    public ResponseEntity<CategoriaDTO> getCategoriaById(@PathVariable Long id) {
-        Categoria categoria = categoriaRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Categoría no encontrada con ID: " + id));
-        return ResponseEntity.ok(convertToDTO(categoria));
+    public ResponseEntity<CategoriaDTO> getCategoriaById(@PathVariable Long id, WebRequest webRequest) {
+        if (webRequest.checkNotModified(catalogoVersion.etag("categoria|" + id), catalogoVersion.getUltimaModificacion())) {
+            return null;
+        }
+        CategoriaDTO categoria = catalogoCache.categorias().getOrLoad(id, k ->
+                convertToDTO(categoriaRepository.findById(k)
+                        .orElseThrow(() -> new ResourceNotFoundException("Categoría no encontrada con ID: " + k))));
+        return ResponseEntity.ok(categoria);
     }
 
     @PostMapping("/categorias")
@@ -41,6 +61,7 @@ public class CategoriaController {
         Categoria categoria = convertToEntity(categoriaDTO);
         categoria.setFechaCreacion(LocalDateTime.now());
         Categoria saved = categoriaRepository.save(categoria);
+        eventPublisher.publishEvent(CatalogoCambiadoEvent.todo());
         return ResponseEntity.status(HttpStatus.CREATED).body(convertToDTO(saved));
     }
 
@@ -51,6 +72,7 @@ public class CategoriaController {
         updateEntityFromDTO(categoria, categoriaDTO);
         categoria.setFechaActualizacion(LocalDateTime.now());
         Categoria updated = categoriaRepository.save(categoria);
+        eventPublisher.publishEvent(CatalogoCambiadoEvent.todo());
         return ResponseEntity.ok(convertToDTO(updated));
     }
 
@@ -59,6 +81,7 @@ public class CategoriaController {
         Categoria categoria = categoriaRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Categoría no encontrada con ID: " + id));
         categoriaRepository.delete(categoria);
+        eventPublisher.publishEvent(CatalogoCambiadoEvent.todo());
         return ResponseEntity.noContent().build();
     }
 
@@ -1,17 +1,34 @@
 package com.proyectouno.demo.Controller;
 
 import com.proyectouno.demo.DTO.ProductoDTO;
-import com.proyectouno.demo.repository.ProductoRepository;
+import com.proyectouno.demo.service.CatalogoEnMemoria;
+import com.proyectouno.demo.service.ChatPromptCache;
+import com.proyectouno.demo.service.ChatRespuestaCache;
+import com.proyectouno.demo.service.DetectorSintomas;
+import com.proyectouno.demo.service.LlmGateway;
+import com.proyectouno.demo.service.MemoriaConversaciones;
+import com.proyectouno.demo.service.ProductoBusquedaIndex;
+import com.proyectouno.demo.service.RecomendacionIndex;
+import com.proyectouno.demo.service.RespuestasLocales;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
-import io.github.cdimascio.dotenv.Dotenv;
 
 
 @RestController
@@ -20,129 +37,281 @@ import io.github.cdimascio.dotenv.Dotenv;
 public class ChatAIController {
 
     @Autowired
-    private ProductoRepository productoRepository;
-
-    private final String GROQ_API_URL = "https://api.groq.com/openai/v1/chat/completions";
-    private final String API_KEY;
-    
-    public ChatAIController() {
-        Dotenv dotenv = Dotenv.load(); // Carga el archivo .env
-        this.API_KEY = dotenv.get("GROQ_API_KEY");
-    }
+    private ProductoBusquedaIndex busquedaIndex;
+
+    @Autowired
+    private DetectorSintomas detectorSintomas;
+
+    @Autowired
+    private RecomendacionIndex recomendacionIndex;
+
+    @Autowired
+    private CatalogoEnMemoria catalogoEnMemoria;
+
+    @Autowired
+    private ChatPromptCache chatPromptCache;
+
+    @Autowired
+    private LlmGateway llmGateway;
+
+    @Autowired
+    private ChatRespuestaCache chatRespuestaCache;
+
+    @Autowired
+    private RespuestasLocales respuestasLocales;
 
+    @Autowired
+    private MemoriaConversaciones memoriaConversaciones;
+
+    // Tiempo máximo de una respuesta en streaming
+    private static final long TIMEOUT_STREAM_MS = 120_000;
+
+    // Respuesta cuando el LLM no está disponible (circuito abierto o demasiadas consultas)
+    private static final String MENSAJE_NO_DISPONIBLE =
+            "El asistente está muy ocupado en este momento. Por favor, intenta de nuevo en unos minutos " +
+            "o consulta directamente en la farmacia.";
+
+    // Responder localmente, sin llamar al LLM, las preguntas directas sobre un producto
+    @Value("${chat.respuestas-locales.primera-pasada:true}")
+    private boolean primeraPasadaLocal;
+
+    // Productos recomendados por síntoma que se agregan al prompt
+    private static final int RECOMENDACIONES_POR_CONSULTA = 5;
+
+    // Cantidad de productos (los más parecidos al mensaje) que se incluyen en el prompt
+    @Value("${chat.contexto.max-productos:8}")
+    private int maxProductosContexto;
+
+    /**
+     * Chat sin streaming. Las preguntas cortas sobre precio, stock o receta de un producto se
+     * responden localmente sin llamar al LLM; si el LLM falla o no está disponible se usa la
+     * respuesta local como respaldo cuando la hay.
+     *
+     * Con "conversationId" se continúa una conversación (el LLM recibe los turnos anteriores). Solo
+     * se aceptan ids emitidos por el servidor y todavía activos; si no viene o no es uno de ellos se
+     * inicia una nueva. La respuesta siempre incluye el id para el siguiente turno.
+     */
     @PostMapping("/chat-ai")
-    public ResponseEntity<?> chatWithAI(@RequestBody Map<String, String> request) {
-        try {
-            String userMessage = request.get("message");
-            
-            // Obtener información de productos para el contexto
-            List<ProductoDTO> productos = productoRepository.findAllWithCategoria().stream()
-                    .map(producto -> new ProductoDTO(producto))
-                    .collect(Collectors.toList());
-            
-            String productosContext = buildProductosContext(productos);
-            
-            // Preparar el prompt con contexto específico
-            String systemPrompt = buildSystemPrompt(productosContext);
-            
-            // Llamar a la API de Groq
-            String aiResponse = callGroqAPI(systemPrompt, userMessage);
-            
-            return ResponseEntity.ok(Map.of("response", aiResponse));
-            
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Error al comunicarse con la IA: " + e.getMessage()));
+    public CompletableFuture<ResponseEntity<?>> chatWithAI(@RequestBody Map<String, String> request) {
+        String userMessage = request.get("message");
+        String conversationId = memoriaConversaciones.idValido(request.get("conversationId"));
+        List<Map<String, String>> historial = memoriaConversaciones.historial(conversationId);
+
+        Optional<RespuestasLocales.Respuesta> local = respuestasLocales.responder(userMessage);
+        if (primeraPasadaLocal && local.isPresent() && local.get().directa()) {
+            respuestasLocales.registrarUso(local.get(), false);
+            memoriaConversaciones.registrar(conversationId, userMessage, local.get().texto());
+            return CompletableFuture.completedFuture(respuestaLocal(local.get(), conversationId));
+        }
+
+        String systemPrompt = prepararPrompt(consultaConContexto(userMessage, historial));
+
+        // Pregunta repetida con los mismos datos de productos: no hace falta llamar al LLM. Si hay
+        // historial la respuesta depende de la conversación y no se usa la caché
+        String claveCache = historial.isEmpty() ? chatRespuestaCache.clave(userMessage, systemPrompt) : null;
+        String enCache = chatRespuestaCache.get(claveCache);
+        if (enCache != null) {
+            memoriaConversaciones.registrar(conversationId, userMessage, enCache);
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.ok(Map.of("response", enCache, "conversationId", conversationId)));
         }
+
+        // La respuesta se completa en los hilos del cliente HTTP; el hilo de Tomcat queda libre mientras tanto
+        return llmGateway.completar(systemPrompt, historial, userMessage)
+                .<ResponseEntity<?>>thenApply(aiResponse -> {
+                    if (aiResponse == null) {
+                        return ResponseEntity.ok(Map.of("response", "Lo siento, no pude procesar tu pregunta en este momento.",
+                                "conversationId", conversationId));
+                    }
+                    chatRespuestaCache.guardar(claveCache, aiResponse);
+                    memoriaConversaciones.registrar(conversationId, userMessage, aiResponse);
+                    return ResponseEntity.ok(Map.of("response", aiResponse, "conversationId", conversationId));
+                })
+                .exceptionally(error -> {
+                    if (local.isPresent()) {
+                        respuestasLocales.registrarUso(local.get(), true);
+                        memoriaConversaciones.registrar(conversationId, userMessage, local.get().texto());
+                        return respuestaLocal(local.get(), conversationId);
+                    }
+                    return respuestaError(error);
+                });
     }
 
-    private String buildProductosContext(List<ProductoDTO> productos) {
-        StringBuilder context = new StringBuilder();
-        context.append("PRODUCTOS DISPONIBLES EN LA FARMACIA:\n\n");
-        
-        for (ProductoDTO producto : productos) {
-            context.append("• ").append(producto.getNombre())
-                   .append(" - Precio: S/ ").append(producto.getPrecio())
-                   .append(" - Stock: ").append(producto.getStockActual())
-                   .append(" - Categoría: ").append(producto.getCategoriaNombre())
-                   .append(" - Requiere receta: ").append(producto.getRequiereReceta() ? "Sí" : "No")
-                   .append(" - Controlado: ").append(producto.getEsControlado() ? "Sí" : "No")
-                   .append("\n");
-            
-            if (producto.getDescripcion() != null && !producto.getDescripcion().isEmpty()) {
-                context.append("  Descripción: ").append(producto.getDescripcion()).append("\n");
+    /**
+     * Variante en streaming del chat: envía al navegador cada fragmento de la respuesta como
+     * Server-Sent Event (evento "delta" con {"texto": ...}) mientras el modelo lo genera, y un
+     * evento "fin" con {"conversationId": ...} al terminar o "error" si falla. El hilo de la
+     * solicitud se libera enseguida; la respuesta del LLM se procesa en los hilos del cliente HTTP
+     * asíncrono.
+     *
+     * Es GET para poder usarse directamente con EventSource desde el navegador.
+     */
+    @GetMapping(value = "/chat-ai/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatWithAIStream(@RequestParam String message,
+                                       @RequestParam(required = false) String conversationId) {
+        SseEmitter emitter = new SseEmitter(TIMEOUT_STREAM_MS);
+        String idConversacion = memoriaConversaciones.idValido(conversationId);
+        List<Map<String, String>> historial = memoriaConversaciones.historial(idConversacion);
+
+        Optional<RespuestasLocales.Respuesta> local = respuestasLocales.responder(message);
+        if (primeraPasadaLocal && local.isPresent() && local.get().directa()) {
+            respuestasLocales.registrarUso(local.get(), false);
+            memoriaConversaciones.registrar(idConversacion, message, local.get().texto());
+            enviarCompleta(emitter, local.get().texto(), idConversacion);
+            return emitter;
+        }
+
+        String systemPrompt = prepararPrompt(consultaConContexto(message, historial));
+
+        String claveCache = historial.isEmpty() ? chatRespuestaCache.clave(message, systemPrompt) : null;
+        String enCache = chatRespuestaCache.get(claveCache);
+        if (enCache != null) {
+            memoriaConversaciones.registrar(idConversacion, message, enCache);
+            enviarCompleta(emitter, enCache, idConversacion);
+            return emitter;
+        }
+
+        // Los fragmentos llegan de a uno (nunca en paralelo); se juntan para guardar la respuesta completa
+        StringBuilder respuesta = new StringBuilder();
+        llmGateway.streamear(systemPrompt, historial, message, delta -> {
+            respuesta.append(delta);
+            try {
+                emitter.send(SseEmitter.event().name("delta").data(Map.of("texto", delta), MediaType.APPLICATION_JSON));
+            } catch (IOException e) {
+                // El navegador cerró la conexión: se corta también la descarga del LLM
+                throw new UncheckedIOException(e);
             }
-            
-            if (producto.getLaboratorio() != null && !producto.getLaboratorio().isEmpty()) {
-                context.append("  Laboratorio: ").append(producto.getLaboratorio()).append("\n");
+        }).whenComplete((v, error) -> {
+            try {
+                if (error == null) {
+                    chatRespuestaCache.guardar(claveCache, respuesta.toString());
+                    memoriaConversaciones.registrar(idConversacion, message, respuesta.toString());
+                    enviarFin(emitter, idConversacion);
+                } else if (local.isPresent() && respuesta.isEmpty()) {
+                    // Todavía no se envió nada del LLM: se responde con la respuesta local
+                    respuestasLocales.registrarUso(local.get(), true);
+                    memoriaConversaciones.registrar(idConversacion, message, local.get().texto());
+                    emitter.send(SseEmitter.event().name("delta")
+                            .data(Map.of("texto", local.get().texto()), MediaType.APPLICATION_JSON));
+                    enviarFin(emitter, idConversacion);
+                } else if (causa(error) instanceof LlmGateway.ConsumidorException) {
+                    // El navegador cerró la conexión: no hay a quién avisar
+                    emitter.completeWithError(causa(error).getCause());
+                    return;
+                } else {
+                    String mensaje = causa(error) instanceof LlmGateway.LlmNoDisponibleException
+                            ? MENSAJE_NO_DISPONIBLE : "Error al comunicarse con la IA";
+                    emitter.send(SseEmitter.event().name("error")
+                            .data(Map.of("error", mensaje), MediaType.APPLICATION_JSON));
+                }
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
             }
-            
-            if (producto.getPrincipioActivo() != null && !producto.getPrincipioActivo().isEmpty()) {
-                context.append("  Principio activo: ").append(producto.getPrincipioActivo()).append("\n");
+        });
+        return emitter;
+    }
+
+    /**
+     * Métricas del chat: armado del prompt (fragmentos renderizados, tamaño de los prompts) y
+     * llamadas al LLM (en curso, en cola, rechazos, estado del circuito y latencias), caché de
+     * respuestas (tasa de aciertos y llamadas ahorradas), respuestas locales por intención y
+     * memoria de conversaciones.
+     */
+    @GetMapping("/chat-ai/metricas")
+    public ResponseEntity<?> getMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("prompt", chatPromptCache.estadisticas());
+        metricas.put("llm", llmGateway.estadisticas());
+        metricas.put("cacheRespuestas", chatRespuestaCache.estadisticas());
+        metricas.put("respuestasLocales", respuestasLocales.estadisticas());
+        metricas.put("conversaciones", memoriaConversaciones.estadisticas());
+        return ResponseEntity.ok(metricas);
+    }
+
+    // Respuesta ya completa (caché o local): se envía en un solo evento
+    private void enviarCompleta(SseEmitter emitter, String texto, String conversationId) {
+        try {
+            emitter.send(SseEmitter.event().name("delta").data(Map.of("texto", texto), MediaType.APPLICATION_JSON));
+            enviarFin(emitter, conversationId);
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void enviarFin(SseEmitter emitter, String conversationId) throws IOException {
+        emitter.send(SseEmitter.event().name("fin")
+                .data(Map.of("conversationId", conversationId), MediaType.APPLICATION_JSON));
+    }
+
+    private ResponseEntity<?> respuestaLocal(RespuestasLocales.Respuesta respuesta, String conversationId) {
+        return ResponseEntity.ok(Map.of("response", respuesta.texto(), "origen", "local",
+                "conversationId", conversationId));
+    }
+
+    // En un turno de seguimiento ("¿y cuánto cuesta?") el producto suele estar en la pregunta
+    // anterior, así que también se usa para elegir los productos del prompt
+    private static String consultaConContexto(String mensaje, List<Map<String, String>> historial) {
+        for (int i = historial.size() - 1; i >= 0; i--) {
+            if ("user".equals(historial.get(i).get("role"))) {
+                return historial.get(i).get("content") + " " + mensaje;
             }
-            
-            context.append("\n");
         }
-        
-        return context.toString();
+        return mensaje;
     }
 
-    private String buildSystemPrompt(String productosContext) {
-        return "Eres un asistente virtual especializado de Farmacia María Rosa. " +
-               "Tu función es ayudar a los clientes con información sobre productos farmacéuticos, " +
-               "recomendaciones generales y consultas sobre disponibilidad.\n\n" +
-               "INSTRUCCIONES IMPORTANTES:\n" +
-               "1. SOLO responde preguntas relacionadas con medicamentos, productos de salud, y temas farmacéuticos\n" +
-               "2. NO proporciones diagnósticos médicos\n" +
-               "3. SIEMPRE recomienda consultar con un médico para problemas de salud específicos\n" +
-               "4. Usa la siguiente información de productos para responder sobre disponibilidad y precios\n" +
-               "5. Sé amable, profesional y útil\n" +
-               "6. Si un producto requiere receta, infórmalo claramente\n" +
-               "7. Si no sabes algo, reconócelo y sugiere consultar en la farmacia\n\n" +
-               productosContext +
-               "\nRecuerda: Solo información farmacéutica. Para emergencias médicas, deriva inmediatamente al médico.";
+    private String prepararPrompt(String userMessage) {
+        // Solo los productos más relacionados con el mensaje (BM25 en memoria, sin ir a la BD),
+        // así el tamaño del prompt no depende del tamaño del catálogo
+        List<ProductoDTO> productos = busquedaIndex.buscar(userMessage, maxProductosContexto).stream()
+                .map(resultado -> catalogoEnMemoria.get(resultado.idProducto()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        // Síntomas mencionados por el cliente (una pasada sobre el mensaje)
+        String sintomasContext = buildSintomasContext(detectorSintomas.detectar(userMessage));
+
+        // Prompt armado con los fragmentos ya renderizados de cada producto
+        return chatPromptCache.armarPrompt(productos, sintomasContext);
     }
 
-    private String callGroqAPI(String systemPrompt, String userMessage) {
-        try {
-            RestTemplate restTemplate = new RestTemplate();
-            
-            // Estructura del request para Groq API
-            Map<String, Object> requestBody = Map.of(
-                "model", "llama-3.1-8b-instant",
-                "messages", List.of(
-                    Map.of("role", "system", "content", systemPrompt),
-                    Map.of("role", "user", "content", userMessage)
-                ),
-                "temperature", 0.7,
-                "max_tokens", 1024
-            );
-            
-            // Headers
-            org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
-            headers.set("Authorization", "Bearer " + API_KEY);
-            headers.set("Content-Type", "application/json");
-            
-            org.springframework.http.HttpEntity<Map<String, Object>> entity = 
-                new org.springframework.http.HttpEntity<>(requestBody, headers);
-            
-            // Hacer la llamada
-            ResponseEntity<Map> response = restTemplate.postForEntity(GROQ_API_URL, entity, Map.class);
-            
-            // Extraer la respuesta
-            if (response.getBody() != null) {
-                Map<String, Object> responseBody = response.getBody();
-                List<Map<String, Object>> choices = (List<Map<String, Object>>) responseBody.get("choices");
-                if (choices != null && !choices.isEmpty()) {
-                    Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
-                    return (String) message.get("content");
-                }
+    private String buildSintomasContext(List<DetectorSintomas.Coincidencia> sintomas) {
+        if (sintomas.isEmpty()) {
+            return "";
+        }
+        StringBuilder context = new StringBuilder();
+        context.append("SÍNTOMAS MENCIONADOS POR EL CLIENTE: ")
+               .append(sintomas.stream().map(DetectorSintomas.Coincidencia::nombre).collect(Collectors.joining(", ")))
+               .append("\nPRODUCTOS RELACIONADOS CON ESOS SÍNTOMAS (de más a menos recomendado):\n");
+        List<Long> ids = sintomas.stream().map(DetectorSintomas.Coincidencia::idSintoma).toList();
+        for (RecomendacionIndex.Combinada r : recomendacionIndex.porSintomas(ids, RECOMENDACIONES_POR_CONSULTA)) {
+            ProductoDTO producto = catalogoEnMemoria.get(r.idProducto());
+            if (producto != null) {
+                context.append("• ").append(producto.getNombre())
+                       .append(" - Stock: ").append(producto.getStockActual())
+                       .append("\n");
             }
-            
-            return "Lo siento, no pude procesar tu pregunta en este momento.";
-            
-        } catch (Exception e) {
-            throw new RuntimeException("Error calling Groq API: " + e.getMessage());
         }
+        return context.append("\n").toString();
+    }
+
+    private ResponseEntity<?> respuestaError(Throwable error) {
+        Throwable causa = causa(error);
+        if (causa instanceof LlmGateway.LlmNoDisponibleException) {
+            // Falla rápida: el LLM está caído o saturado, no tiene sentido esperar
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", causa.getMessage(), "response", MENSAJE_NO_DISPONIBLE));
+        }
+        if (causa instanceof TimeoutException) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                    .body(Map.of("error", "La IA tardó demasiado en responder"));
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Error al comunicarse con la IA: " + causa.getMessage()));
+    }
+
+    private static Throwable causa(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
-}
\ No newline at end of file
+}
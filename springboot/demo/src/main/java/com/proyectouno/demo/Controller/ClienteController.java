@@ -6,6 +6,7 @@ import com.proyectouno.demo.models.Cliente;
 import com.proyectouno.demo.repository.ClienteRepository;
 import com.proyectouno.demo.repository.MensajeContactoRepository;
 import com.proyectouno.demo.repository.ReservaRepository;
+import com.proyectouno.demo.service.EscritorJsonStreaming;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,7 +20,6 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 import java.util.Optional;
 
 @RestController
@@ -36,15 +36,20 @@ public class ClienteController {
     @Autowired
     private ReservaRepository reservaRepository;
 
+    @Autowired
+    private EscritorJsonStreaming escritorJsonStreaming;
+
     /**
      * Listar todos los clientes.
      */
     @GetMapping("/clientes")
-    public ResponseEntity<List<ClienteDTO>> getAllClientes() {
+    public ResponseEntity<?> getAllClientes(@RequestParam(required = false, defaultValue = "false") boolean stream) {
+        if (stream) {
+            // Exportación: se escribe cliente por cliente desde un cursor de la BD
+            return escritorJsonStreaming.responder(clienteRepository::streamAllDTO, dto -> dto);
+        }
         System.out.println("Listando todos los clientes");
-        List<ClienteDTO> clientes = clienteRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        List<ClienteDTO> clientes = clienteRepository.findAllDTO();
         System.out.println("Clientes encontrados: " + clientes.size());
         clientes.forEach(dto -> {
             if (dto.getIdCliente() == null) {
@@ -10,6 +10,7 @@ import com.proyectouno.demo.models.Cliente;
 import com.proyectouno.demo.models.MensajeContacto;
 import com.proyectouno.demo.repository.ClienteRepository;
 import com.proyectouno.demo.repository.MensajeContactoRepository;
+import com.proyectouno.demo.service.EscritorJsonStreaming;
 import jakarta.validation.ConstraintViolationException;
 
 import org.springframework.web.bind.annotation.*;
@@ -31,6 +32,9 @@ public class ContactoController {
     @Autowired
     private MensajeContactoRepository mensajeContactoRepository; // Repositorio para mensajes de contacto
 
+    @Autowired
+    private EscritorJsonStreaming escritorJsonStreaming; // Escritura de listados grandes sin armar la lista
+
     /**
      * Endpoint para recibir un formulario de contacto.
      * Si el cliente ya existe (dni + email) se reutiliza, si no se crea uno nuevo.
@@ -96,10 +100,20 @@ public class ContactoController {
     }
 
     // MÉTODO SEPARADO (fuera del POST): listado para admin
+    // Con stream=true se escriben los mensajes uno por uno desde un cursor de la BD (exportaciones)
     @GetMapping("/mensajes")
-    public ResponseEntity<?> obtenerTodosMensajes() {
+    public ResponseEntity<?> obtenerTodosMensajes(
+            @RequestParam(required = false, defaultValue = "false") boolean stream) {
+        if (stream) {
+            return escritorJsonStreaming.responder(mensajeContactoRepository::streamAllWithCliente, this::aMapa);
+        }
         var mensajes = mensajeContactoRepository.findAll();
-        var lista = mensajes.stream().map(m -> Map.of(
+        var lista = mensajes.stream().map(this::aMapa).toList();
+        return ResponseEntity.ok(lista);
+    }
+
+    private Map<String, Object> aMapa(MensajeContacto m) {
+        return Map.of(
                 "id", m.getId(),
                 "mensaje", m.getMensaje(),
                 "fechaEnvio", m.getFechaEnvio(),
@@ -109,8 +123,6 @@ public class ContactoController {
                         "nombre", m.getCliente().getNombre(),
                         "email", m.getCliente().getEmail(),
                         "dni", m.getCliente().getDni(),
-                        "telefono", m.getCliente().getTelefono())))
-                .toList();
-        return ResponseEntity.ok(lista);
+                        "telefono", m.getCliente().getTelefono()));
     }
 }
\ No newline at end of file
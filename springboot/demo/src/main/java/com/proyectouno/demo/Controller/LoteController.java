@@ -5,8 +5,11 @@ import com.proyectouno.demo.models.Lote;
 import com.proyectouno.demo.models.Producto;
 import com.proyectouno.demo.repository.LoteRepository;
 import com.proyectouno.demo.repository.ProductoRepository;
+import com.proyectouno.demo.service.CatalogoCambiadoEvent;
+import com.proyectouno.demo.service.EscritorJsonStreaming;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -30,15 +33,23 @@ public class LoteController {
     @Autowired
     private ProductoRepository productoRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private EscritorJsonStreaming escritorJsonStreaming;
+
     /**
-     * Obtener todos los lotes
+     * Obtener todos los lotes (con stream=true se escriben uno por uno, sin armar la lista)
      */
     @GetMapping
     @Transactional(readOnly = true)
-    public ResponseEntity<List<LoteDTO>> getAllLotes() {
-        List<LoteDTO> lotes = loteRepository.findAllWithProducto().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public ResponseEntity<?> getAllLotes(@RequestParam(required = false, defaultValue = "false") boolean stream) {
+        if (stream) {
+            // Exportación: se escribe lote por lote desde un cursor de la BD
+            return escritorJsonStreaming.responder(loteRepository::streamAllDTO, dto -> dto);
+        }
+        List<LoteDTO> lotes = loteRepository.findAllDTO();
         return ResponseEntity.ok(lotes);
     }
 
@@ -78,6 +89,7 @@ public class LoteController {
             }
             
             Lote saved = loteRepository.save(lote);
+            eventPublisher.publishEvent(CatalogoCambiadoEvent.producto(saved.getProducto().getIdProducto()));
             return ResponseEntity.status(HttpStatus.CREATED).body(convertToDTO(saved));
         } catch (ResourceNotFoundException ex) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -94,10 +106,13 @@ public class LoteController {
             Lote lote = loteRepository.findById(id)
                     .orElseThrow(() -> new ResourceNotFoundException("Lote no encontrado con ID: " + id));
             
+            Long idProductoAnterior = lote.getProducto().getIdProducto();
             updateEntityFromDTO(lote, loteDTO);
             lote.setFechaActualizacion(LocalDateTime.now());
             
             Lote updated = loteRepository.save(lote);
+            eventPublisher.publishEvent(CatalogoCambiadoEvent.productos(
+                    List.of(idProductoAnterior, updated.getProducto().getIdProducto())));
             return ResponseEntity.ok(convertToDTO(updated));
         } catch (ResourceNotFoundException ex) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -113,6 +128,7 @@ public class LoteController {
         Lote lote = loteRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Lote no encontrado con ID: " + id));
         loteRepository.delete(lote);
+        eventPublisher.publishEvent(CatalogoCambiadoEvent.producto(lote.getProducto().getIdProducto()));
         return ResponseEntity.noContent().build();
     }
 
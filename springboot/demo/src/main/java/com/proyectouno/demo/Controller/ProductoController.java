@@ -2,13 +2,27 @@ package com.proyectouno.demo.Controller;
 
 import com.proyectouno.demo.DTO.ProductoDTO;
 import com.proyectouno.demo.models.Producto;
+import com.proyectouno.demo.repository.ProductoBusquedaRepository;
 import com.proyectouno.demo.repository.ProductoRepository;
 import com.proyectouno.demo.repository.CategoriaRepository;
+import com.proyectouno.demo.service.CatalogoCache;
+import com.proyectouno.demo.service.CatalogoCambiadoEvent;
+import com.proyectouno.demo.service.CatalogoEnMemoria;
+import com.proyectouno.demo.service.CatalogoVersion;
+import com.proyectouno.demo.service.CodigoBarrasIndex;
+import com.proyectouno.demo.service.FacetaIndex;
+import com.proyectouno.demo.service.ProductoBusquedaIndex;
+import com.proyectouno.demo.service.ProductoImportador;
+import com.proyectouno.demo.service.ProductoSugerenciasTrie;
 import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,10 +32,18 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.GrantedAuthority; // ✅ IMPORTACIÓN CORRECTA
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -29,15 +51,64 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = {"http://127.0.0.1:5500", "http://localhost:5500", " http://localhost:5173/", " http://127.0.0.1:5173/"})
 public class ProductoController {
 
+    private static final Logger log = LoggerFactory.getLogger(ProductoController.class);
+
     @Autowired
     private ProductoRepository productoRepository;
 
     @Autowired
     private CategoriaRepository categoriaRepository;
 
+    @Autowired
+    private ProductoBusquedaRepository productoBusquedaRepository;
+
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CatalogoEnMemoria catalogoEnMemoria;
+
+    @Autowired
+    private ProductoBusquedaIndex busquedaIndex;
+
+    @Autowired
+    private ProductoSugerenciasTrie sugerenciasTrie;
+
+    @Autowired
+    private CodigoBarrasIndex codigoBarrasIndex;
+
+    @Autowired
+    private FacetaIndex facetaIndex;
+
+    @Autowired
+    private CatalogoVersion catalogoVersion;
+
+    @Autowired
+    private ProductoImportador productoImportador;
+
+    // Tamaño de página por defecto y máximo para la paginación por cursor
+    private static final int LIMITE_POR_DEFECTO = 50;
+    private static final int LIMITE_MAXIMO = 200;
+
+    /**
+     * Lista productos. Sin parámetros devuelve el catálogo completo (comportamiento original);
+     * si se envía cualquier filtro, cursor o límite se usa paginación por cursor (keyset)
+     * sobre (nombre, idProducto) y se devuelve "siguienteCursor" para pedir la página siguiente.
+     */
     @GetMapping("/productos")
     @Transactional(readOnly = true)
-    public ResponseEntity<?> getAllProductos() {
+    public ResponseEntity<?> getAllProductos(
+            @RequestParam(required = false) Long categoria,
+            @RequestParam(required = false) Boolean requiereReceta,
+            @RequestParam(required = false) Boolean esControlado,
+            @RequestParam(required = false) String laboratorio,
+            @RequestParam(required = false) Boolean estado,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            WebRequest webRequest) {
         try {
             // Obtener información del usuario autenticado
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -47,11 +118,47 @@ public class ProductoController {
                     .map(GrantedAuthority::getAuthority) // ✅ CORREGIDO
                     .orElse("ROLE_ANONIMO");
             boolean isAuthenticated = !(authentication instanceof AnonymousAuthenticationToken);
+
+            // Lectura condicional: si el cliente ya tiene esta versión se responde 304 sin ir a la BD
+            String etag = catalogoVersion.etag("productos|" + categoria + "|" + requiereReceta + "|" + esControlado
+                    + "|" + laboratorio + "|" + estado + "|" + cursor + "|" + limite + "|" + username + "|" + rol);
+            if (webRequest.checkNotModified(etag, catalogoVersion.getUltimaModificacion())) {
+                return null;
+            }
             
+            boolean paginado = categoria != null || requiereReceta != null || esControlado != null
+                    || laboratorio != null || estado != null || cursor != null || limite != null;
+
             // Obtener productos
-            List<ProductoDTO> productos = productoRepository.findAllWithCategoria().stream()
-                    .map(this::convertToDTO)
-                    .collect(Collectors.toList());
+            List<ProductoDTO> productos;
+            String siguienteCursor = null;
+            if (paginado) {
+                int tamanio = limite == null ? LIMITE_POR_DEFECTO : Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+                String cursorNombre = null;
+                Long cursorId = null;
+                if (cursor != null && !cursor.isBlank()) {
+                    String[] partes = decodificarCursor(cursor);
+                    cursorNombre = partes[0];
+                    cursorId = Long.valueOf(partes[1]);
+                }
+                String claveCache = "pagina|" + categoria + "|" + requiereReceta + "|" + esControlado + "|"
+                        + laboratorio + "|" + estado + "|" + cursorNombre + "|" + cursorId + "|" + tamanio;
+                final String fCursorNombre = cursorNombre;
+                final Long fCursorId = cursorId;
+                // Se pide un elemento extra para saber si existe una página siguiente
+                List<ProductoDTO> pagina = catalogoCache.listasProductos().getOrLoad(claveCache, k ->
+                        productoBusquedaRepository.buscarPagina(new ProductoBusquedaRepository.Filtro(categoria,
+                                requiereReceta, esControlado, laboratorio, estado), fCursorNombre, fCursorId, tamanio + 1));
+                boolean hayMas = pagina.size() > tamanio;
+                if (hayMas) {
+                    pagina = pagina.subList(0, tamanio);
+                    ProductoDTO ultimo = pagina.get(pagina.size() - 1);
+                    siguienteCursor = codificarCursor(ultimo.getNombre(), ultimo.getIdProducto());
+                }
+                productos = pagina;
+            } else {
+                productos = catalogoCache.listasProductos().getOrLoad("todos", k -> productoRepository.findAllDTO());
+            }
             
             // Crear respuesta con información del usuario
             Map<String, Object> response = new HashMap<>();
@@ -63,20 +170,117 @@ public class ProductoController {
             response.put("productos", productos);
             response.put("total", productos.size());
             response.put("mensaje", "Productos cargados exitosamente");
+            if (paginado) {
+                response.put("siguienteCursor", siguienteCursor);
+                response.put("hayMas", siguienteCursor != null);
+            }
             
             // Log para debugging
             System.out.println("🔐 Usuario autenticado: " + username + " | Rol: " + rol);
             
             return ResponseEntity.ok(response);
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Cursor inválido"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Error al obtener productos: " + e.getMessage()));
         }
     }
 
+    /**
+     * Búsqueda de texto libre sobre nombre, descripción, principio activo, laboratorio y
+     * forma farmacéutica. Se resuelve en memoria con el índice invertido, sin consultar la BD.
+     */
+    @GetMapping("/productos/search")
+    public ResponseEntity<?> searchProductos(@RequestParam("q") String consulta,
+                                             @RequestParam(defaultValue = "20") int limite) {
+        int tamanio = Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+        List<Map<String, Object>> resultados = new ArrayList<>();
+        for (ProductoBusquedaIndex.Resultado resultado : busquedaIndex.buscar(consulta, tamanio)) {
+            ProductoDTO producto = catalogoEnMemoria.get(resultado.idProducto());
+            if (producto != null) {
+                resultados.add(Map.of("producto", producto, "puntaje", resultado.puntaje()));
+            }
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("consulta", consulta);
+        response.put("resultados", resultados);
+        response.put("total", resultados.size());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Sugerencias mientras se escribe: productos cuyo nombre o principio activo empieza con
+     * el texto, ordenados por popularidad. Se resuelve en memoria con un trie.
+     */
+    @GetMapping("/productos/suggest")
+    public ResponseEntity<?> suggestProductos(@RequestParam("q") String prefijo,
+                                              @RequestParam(defaultValue = "10") int limite) {
+        int tamanio = Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+        List<Map<String, Object>> sugerencias = new ArrayList<>();
+        for (Long idProducto : sugerenciasTrie.sugerir(prefijo, tamanio)) {
+            ProductoDTO producto = catalogoEnMemoria.get(idProducto);
+            if (producto != null) {
+                Map<String, Object> sugerencia = new HashMap<>();
+                sugerencia.put("idProducto", producto.getIdProducto());
+                sugerencia.put("nombre", producto.getNombre());
+                sugerencia.put("principioActivo", producto.getPrincipioActivo());
+                sugerencias.add(sugerencia);
+            }
+        }
+        return ResponseEntity.ok(Map.of("consulta", prefijo, "sugerencias", sugerencias));
+    }
+
+    /**
+     * Escaneo en caja: precio y stock por código de barras desde el mapa en memoria.
+     */
+    @GetMapping("/productos/barcode/{codigo}")
+    public ResponseEntity<?> getProductoByCodigoBarras(@PathVariable String codigo) {
+        CodigoBarrasIndex.Entrada entrada = codigoBarrasIndex.buscar(codigo);
+        if (entrada == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Producto no encontrado con código de barras: " + codigo));
+        }
+        return ResponseEntity.ok(entrada);
+    }
+
+    /**
+     * Filtros del catálogo con conteo por faceta. Cada parámetro admite varios valores
+     * (por ejemplo ?laboratorio=Bayer&laboratorio=Genfar); categoria se filtra por ID.
+     */
+    @GetMapping("/productos/facetas")
+    public ResponseEntity<?> getFacetas(
+            @RequestParam(required = false) List<String> categoria,
+            @RequestParam(required = false) List<String> requiereReceta,
+            @RequestParam(required = false) List<String> esControlado,
+            @RequestParam(required = false) List<String> laboratorio,
+            @RequestParam(required = false) List<String> formaFarmaceutica,
+            @RequestParam(defaultValue = "50") int limite) {
+        Map<String, Set<String>> filtros = new HashMap<>();
+        if (categoria != null) filtros.put(FacetaIndex.CATEGORIA, new HashSet<>(categoria));
+        if (requiereReceta != null) filtros.put(FacetaIndex.REQUIERE_RECETA, new HashSet<>(requiereReceta));
+        if (esControlado != null) filtros.put(FacetaIndex.ES_CONTROLADO, new HashSet<>(esControlado));
+        if (laboratorio != null) filtros.put(FacetaIndex.LABORATORIO, new HashSet<>(laboratorio));
+        if (formaFarmaceutica != null) filtros.put(FacetaIndex.FORMA_FARMACEUTICA, new HashSet<>(formaFarmaceutica));
+
+        FacetaIndex.Resultado resultado = facetaIndex.consultar(filtros, Math.max(0, Math.min(limite, LIMITE_MAXIMO)));
+        List<ProductoDTO> productos = resultado.ids().stream()
+                .map(catalogoEnMemoria::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("productos", productos);
+        response.put("total", resultado.total());
+        response.put("facetas", resultado.conteos());
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/productos/{id}")
-    public ResponseEntity<?> getProductoById(@PathVariable Long id) {
+    public ResponseEntity<?> getProductoById(@PathVariable Long id, WebRequest webRequest) {
         try {
             // Obtener información del usuario
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -85,9 +289,15 @@ public class ProductoController {
                     .findFirst()
                     .map(GrantedAuthority::getAuthority) // ✅ CORREGIDO
                     .orElse("ROLE_ANONIMO");
+
+            String etag = catalogoVersion.etag("producto|" + id + "|" + username + "|" + rol);
+            if (webRequest.checkNotModified(etag, catalogoVersion.getUltimaModificacion())) {
+                return null;
+            }
             
-            Producto producto = productoRepository.findById(id)
-                    .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con ID: " + id));
+            ProductoDTO producto = catalogoCache.productos().getOrLoad(id, k ->
+                    convertToDTO(productoRepository.findById(k)
+                            .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con ID: " + k))));
             
             Map<String, Object> response = new HashMap<>();
             response.put("usuario", Map.of(
@@ -95,7 +305,7 @@ public class ProductoController {
                 "rol", rol.replace("ROLE_", ""),
                 "autenticado", !(authentication instanceof AnonymousAuthenticationToken)
             ));
-            response.put("producto", convertToDTO(producto));
+            response.put("producto", producto);
             
             return ResponseEntity.ok(response);
         } catch (ResourceNotFoundException ex) {
@@ -125,6 +335,7 @@ public class ProductoController {
             Producto producto = convertToEntity(productoDTO);
             producto.setFechaCreacion(LocalDateTime.now());
             Producto saved = productoRepository.save(producto);
+            eventPublisher.publishEvent(CatalogoCambiadoEvent.producto(saved.getIdProducto()));
             
             Map<String, Object> response = new HashMap<>();
             response.put("usuario", Map.of(
@@ -162,6 +373,7 @@ public class ProductoController {
             updateEntityFromDTO(producto, productoDTO);
             producto.setFechaActualizacion(LocalDateTime.now());
             Producto updated = productoRepository.save(producto);
+            eventPublisher.publishEvent(CatalogoCambiadoEvent.producto(id));
             
             Map<String, Object> response = new HashMap<>();
             response.put("usuario", Map.of(
@@ -197,6 +409,7 @@ public class ProductoController {
             Producto producto = productoRepository.findById(id)
                     .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con ID: " + id));
             productoRepository.delete(producto);
+            eventPublisher.publishEvent(CatalogoCambiadoEvent.producto(id));
             
             Map<String, Object> response = new HashMap<>();
             response.put("usuario", Map.of(
@@ -213,6 +426,34 @@ public class ProductoController {
         }
     }
 
+    /**
+     * Importación masiva de productos (CSV con cabecera o NDJSON, según el Content-Type).
+     * Cada fila debe traer código de barras; los productos con un código existente se actualizan.
+     * Responde con el total de filas procesadas e importadas y el detalle de las filas rechazadas.
+     */
+    @PostMapping(value = "/productos/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<?> importarProductos(@RequestHeader("Content-Type") String contentType,
+                                               InputStream cuerpo) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication instanceof AnonymousAuthenticationToken) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Se requiere autenticación"));
+        }
+        ProductoImportador.Formato formato = contentType.startsWith("text/csv")
+                ? ProductoImportador.Formato.CSV
+                : ProductoImportador.Formato.NDJSON;
+        try {
+            ProductoImportador.Resultado resultado = productoImportador.importar(cuerpo, formato);
+            log.info("Importación de productos - usuario: {}, importadas: {}/{}, rechazadas: {}",
+                    authentication.getName(), resultado.importadas(), resultado.procesadas(),
+                    resultado.errores().size());
+            return ResponseEntity.ok(resultado);
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "No se pudo leer el archivo: " + e.getMessage()));
+        }
+    }
+
     // Endpoint adicional para probar autenticación
     @GetMapping("/productos/info-usuario")
     public ResponseEntity<?> getInfoUsuario() {
@@ -230,6 +471,21 @@ public class ProductoController {
         return ResponseEntity.ok(info);
     }
 
+    // El cursor es "nombre\nidProducto" en Base64 URL-safe, opaco para el cliente
+    private String codificarCursor(String nombre, Long idProducto) {
+        String valor = nombre + "\n" + idProducto;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodificarCursor(String cursor) {
+        String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separador = valor.lastIndexOf('\n');
+        if (separador < 0) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        return new String[] { valor.substring(0, separador), valor.substring(separador + 1) };
+    }
+
     private ProductoDTO convertToDTO(Producto producto) {
         return new ProductoDTO(producto);
     }
@@ -5,26 +5,44 @@ import com.proyectouno.demo.DTO.DetalleReservaDTO;
 import com.proyectouno.demo.DTO.ProductoDTO;
 import com.proyectouno.demo.DTO.ReservaDTO;
 import com.proyectouno.demo.exceptions.ResourceNotFoundException;
+import com.proyectouno.demo.exceptions.StockInsuficienteException;
 import com.proyectouno.demo.models.*;
 import com.proyectouno.demo.repository.ClienteRepository;
+import com.proyectouno.demo.repository.DetalleReservaJdbcRepository;
 import com.proyectouno.demo.repository.DetalleReservaRepository;
 import com.proyectouno.demo.repository.ProductoRepository;
+import com.proyectouno.demo.repository.ReservaBusquedaRepository;
 import com.proyectouno.demo.repository.ReservaRepository;
+import com.proyectouno.demo.service.CatalogoCambiadoEvent;
+import com.proyectouno.demo.service.EscritorJsonStreaming;
+import com.proyectouno.demo.service.NumeroReservaGenerador;
+import com.proyectouno.demo.service.StockService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -32,6 +50,13 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = {"http://localhost:5500", "http://127.0.0.1:5500"})
 public class ReservaController {
 
+    // Tamaño de página por defecto y máximo para la búsqueda paginada por cursor
+    private static final int LIMITE_POR_DEFECTO = 50;
+    private static final int LIMITE_MAXIMO = 200;
+
+    // Reservas cuyas líneas se cargan en cada consulta de detalles (un parámetro del IN por reserva)
+    private static final int RESERVAS_POR_CONSULTA = 500;
+
     @Autowired
     private ReservaRepository reservaRepository;
 
@@ -44,12 +69,118 @@ public class ReservaController {
     @Autowired
     private DetalleReservaRepository detalleReservaRepository;
 
+    @Autowired
+    private DetalleReservaJdbcRepository detalleReservaJdbcRepository;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private NumeroReservaGenerador numeroReservaGenerador;
+
+    @Autowired
+    private ReservaBusquedaRepository reservaBusquedaRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private EscritorJsonStreaming escritorJsonStreaming;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Lista las reservas. Con {@code stream=true} se escriben una por una desde un cursor de la BD
+     * en lugar de armar la lista completa en memoria (pensado para exportaciones).
+     */
     @GetMapping("/reservas")
-    public ResponseEntity<List<ReservaDTO>> getAllReservas() {
-        List<ReservaDTO> reservas = reservaRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(reservas);
+    public ResponseEntity<?> getAllReservas(@RequestParam(required = false, defaultValue = "false") boolean stream) {
+        if (stream) {
+            return escritorJsonStreaming.responderPorLotes(reservaRepository::streamAllWithCliente, this::convertirTodas);
+        }
+        // Dos consultas (reservas con cliente; detalles con producto y categoría) sin importar cuántas haya
+        return ResponseEntity.ok(convertirTodas(reservaRepository.findAllWithCliente()));
+    }
+
+    /**
+     * Búsqueda paginada por cursor (keyset) para la consola de caja. Filtros opcionales: estado,
+     * rangos [desde, hasta) de fechaReserva y fechaLimiteRetiro, cliente (id o DNI) y usuario de
+     * atención. {@code orden=reserva} (por defecto) devuelve las más recientes primero;
+     * {@code orden=retiro}, los retiros más próximos primero.
+     *
+     * Vistas predefinidas con {@code vista}: {@code retiro-hoy} (pendientes con retiro hoy) y
+     * {@code vencidas} (pendientes con la fecha límite de retiro ya pasada); ambas ordenan por retiro.
+     *
+     * Devuelve "siguienteCursor" para pedir la página siguiente.
+     */
+    @GetMapping("/reservas/buscar")
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> buscarReservas(
+            @RequestParam(required = false) String vista,
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime reservadaDesde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime reservadaHasta,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime retiroDesde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime retiroHasta,
+            @RequestParam(required = false) Long idCliente,
+            @RequestParam(required = false) String dni,
+            @RequestParam(required = false) Long idUsuarioAtencion,
+            @RequestParam(required = false) String orden,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        try {
+            Reserva.EstadoReserva estadoReserva = estado == null || estado.isBlank()
+                    ? null : Reserva.EstadoReserva.valueOf(estado.trim().toUpperCase());
+            ReservaBusquedaRepository.Orden ordenBusqueda = orden == null || orden.isBlank()
+                    ? ReservaBusquedaRepository.Orden.RESERVA
+                    : ReservaBusquedaRepository.Orden.valueOf(orden.trim().toUpperCase());
+            if (vista != null && !vista.isBlank()) {
+                LocalDateTime ahora = LocalDateTime.now();
+                estadoReserva = Reserva.EstadoReserva.PENDIENTE;
+                ordenBusqueda = ReservaBusquedaRepository.Orden.RETIRO;
+                switch (vista.trim().toLowerCase()) {
+                    case "retiro-hoy" -> {
+                        retiroDesde = ahora.toLocalDate().atStartOfDay();
+                        retiroHasta = retiroDesde.plusDays(1);
+                    }
+                    case "vencidas" -> retiroHasta = ahora;
+                    default -> throw new IllegalArgumentException("Vista desconocida: " + vista);
+                }
+            }
+            ReservaBusquedaRepository.Filtro filtro = new ReservaBusquedaRepository.Filtro(estadoReserva,
+                    reservadaDesde, reservadaHasta, retiroDesde, retiroHasta, idCliente,
+                    dni == null || dni.isBlank() ? null : dni.trim(), idUsuarioAtencion);
+
+            int tamanio = limite == null ? LIMITE_POR_DEFECTO : Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+            LocalDateTime cursorFecha = null;
+            Long cursorId = null;
+            if (cursor != null && !cursor.isBlank()) {
+                String[] partes = decodificarCursor(cursor, ordenBusqueda);
+                cursorFecha = LocalDateTime.parse(partes[0]);
+                cursorId = Long.valueOf(partes[1]);
+            }
+
+            // Se pide un elemento extra para saber si existe una página siguiente
+            List<Reserva> pagina = reservaBusquedaRepository.buscar(filtro, ordenBusqueda, cursorFecha, cursorId, tamanio + 1);
+            String siguienteCursor = null;
+            if (pagina.size() > tamanio) {
+                pagina = pagina.subList(0, tamanio);
+                Reserva ultima = pagina.get(pagina.size() - 1);
+                siguienteCursor = codificarCursor(ordenBusqueda, ordenBusqueda == ReservaBusquedaRepository.Orden.RETIRO
+                        ? ultima.getFechaLimiteRetiro() : ultima.getFechaReserva(), ultima.getIdReserva());
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("reservas", convertirTodas(pagina));
+            response.put("total", pagina.size());
+            response.put("siguienteCursor", siguienteCursor);
+            response.put("hayMas", siguienteCursor != null);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("status", "error", "message", "Parámetro inválido: " + e.getMessage()));
+        }
     }
 
     @GetMapping("/reservas/{id}")
@@ -67,71 +198,49 @@ public class ReservaController {
             Cliente cliente = clienteRepository.findById(reservaDTO.getCliente().getIdCliente())
                     .orElseThrow(() -> new ResourceNotFoundException("Cliente no encontrado con ID: " + reservaDTO.getCliente().getIdCliente()));
 
-            // Validar stock, receta médica y calcular total
-            BigDecimal total = BigDecimal.ZERO;
-            for (DetalleReservaDTO detalleDTO : reservaDTO.getDetalles()) {
-                Producto producto = productoRepository.findById(detalleDTO.getProducto().getIdProducto())
-                        .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con ID: " + detalleDTO.getProducto().getIdProducto()));
-                if (producto.getStockActual() < detalleDTO.getCantidad()) {
-                    throw new IllegalStateException("Stock insuficiente para el producto: " + producto.getNombre());
-                }
-                if (producto.getRequiereReceta() && (detalleDTO.getNotas() == null || !detalleDTO.getNotas().contains("Receta proporcionada"))) {
-                    throw new IllegalStateException("El producto " + producto.getNombre() + " requiere receta médica");
-                }
-                BigDecimal subtotal = producto.getPrecio().multiply(new BigDecimal(detalleDTO.getCantidad()));
-                detalleDTO.setPrecioUnitario(producto.getPrecio());
-                detalleDTO.setSubtotal(subtotal);
-                detalleDTO.setDisponible(true);
-                total = total.add(subtotal);
-            }
-            reservaDTO.setTotal(total);
+            // Todos los productos en una consulta; valida receta y calcula el total
+            Map<Long, Producto> productos = cargarProductos(idsProductos(reservaDTO.getDetalles()));
+            reservaDTO.setTotal(validarYValorizar(reservaDTO.getDetalles(), productos));
 
-            // Generar número de reserva único
-            String numeroReserva = "RES-" + UUID.randomUUID().toString().substring(0, 8);
-            while (reservaRepository.findByNumeroReserva(numeroReserva) != null) {
-                numeroReserva = "RES-" + UUID.randomUUID().toString().substring(0, 8);
-            }
-            reservaDTO.setNumeroReserva(numeroReserva);
             reservaDTO.setFechaReserva(LocalDateTime.now());
+            // Número único desde la secuencia, sin consultar si ya existe
+            reservaDTO.setNumeroReserva(numeroReservaGenerador.siguiente(reservaDTO.getFechaReserva()));
             if (reservaDTO.getFechaLimiteRetiro() == null) {
                 reservaDTO.setFechaLimiteRetiro(LocalDateTime.now().plusDays(7));
             }
 
-            // Crear reserva
+            // Armar la reserva (valida estado y método de notificación) antes de tocar el stock
             Reserva reserva = convertToEntity(reservaDTO);
-            reserva.setEstado(Reserva.EstadoReserva.valueOf(reservaDTO.getEstado()));
+
+            // Descuenta el stock con UPDATE condicionados: falla si otra reserva se llevó las unidades
+            descontarStock(reservaDTO.getDetalles(), productos);
+
             reserva = reservaRepository.save(reserva);
 
-            // Crear detalles y actualizar stock
-            for (DetalleReservaDTO detalleDTO : reservaDTO.getDetalles()) {
-                Producto producto = productoRepository.findById(detalleDTO.getProducto().getIdProducto()).get();
-                DetalleReserva detalle = new DetalleReserva();
-                detalle.setReserva(reserva);
-                detalle.setProducto(producto);
-                detalle.setCantidad(detalleDTO.getCantidad());
-                detalle.setPrecioUnitario(detalleDTO.getPrecioUnitario());
-                detalle.setSubtotal(detalleDTO.getSubtotal());
-                detalle.setDisponible(detalleDTO.getDisponible());
-                detalle.setNotas(detalleDTO.getNotas());
-                detalleReservaRepository.save(detalle);
-
-                // Actualizar stock
-                producto.setStockActual(producto.getStockActual() - detalleDTO.getCantidad());
-                productoRepository.save(producto);
-            }
+            // Detalles en un solo batch JDBC
+            detalleReservaJdbcRepository.insertarTodos(reserva.getIdReserva(), reservaDTO.getDetalles());
+            publicarCambioStock(productos.keySet());
 
+            releerDesdeLaBase();
             return ResponseEntity.status(HttpStatus.CREATED).body(convertToDTO(reserva));
         } catch (ConstraintViolationException e) {
+            deshacerTransaccion();
             String errorMessage = e.getConstraintViolations().stream()
                     .map(violation -> violation.getMessage())
                     .findFirst()
                     .orElse("Error de validación desconocido");
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("status", "error", "message", errorMessage));
+        } catch (StockInsuficienteException e) {
+            deshacerTransaccion();
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("status", "error", "message", e.getMessage(), "lineasSinStock", e.getLineas()));
         } catch (ResourceNotFoundException | IllegalStateException e) {
+            deshacerTransaccion();
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body(Map.of("status", "error", "message", e.getMessage()));
         } catch (Exception e) {
+            deshacerTransaccion();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("status", "error", "message", "Error al crear la reserva: " + e.getMessage()));
         }
@@ -157,85 +266,67 @@ public class ReservaController {
                 reservaDTO.setFechaEntrega(LocalDateTime.now());
             }
 
-            // Si se cambia a CANCELADA, restaurar stock
-            if (nuevoEstado == Reserva.EstadoReserva.CANCELADA && reserva.getEstado() == Reserva.EstadoReserva.PENDIENTE) {
-                List<DetalleReserva> detalles = detalleReservaRepository.findByReserva(reserva);
-                for (DetalleReserva detalle : detalles) {
-                    Producto producto = detalle.getProducto();
-                    producto.setStockActual(producto.getStockActual() + detalle.getCantidad());
-                    productoRepository.save(producto);
+            // Al cancelar una reserva pendiente se devuelve su stock. Si sigue pendiente y trae
+            // detalles, los detalles se reemplazan: se devuelve el stock de los anteriores y se
+            // descuenta el de los nuevos
+            boolean cancelar = nuevoEstado == Reserva.EstadoReserva.CANCELADA
+                    && reserva.getEstado() == Reserva.EstadoReserva.PENDIENTE;
+            boolean reemplazarDetalles = nuevoEstado == Reserva.EstadoReserva.PENDIENTE
+                    && reserva.getEstado() == Reserva.EstadoReserva.PENDIENTE
+                    && !reservaDTO.getDetalles().isEmpty();
+
+            Map<Long, Integer> devueltas = new HashMap<>();
+            if (cancelar || reemplazarDetalles) {
+                for (DetalleReserva detalle : detalleReservaRepository.findByReserva(reserva)) {
+                    devueltas.merge(detalle.getProducto().getIdProducto(), detalle.getCantidad(), Integer::sum);
                 }
             }
-
-            // Validar stock y receta médica para nuevos detalles si está en PENDIENTE
-            BigDecimal total = BigDecimal.ZERO;
-            if (reserva.getEstado() == Reserva.EstadoReserva.PENDIENTE && !reservaDTO.getDetalles().isEmpty()) {
-                // Restaurar stock de los detalles anteriores
-                List<DetalleReserva> detallesAnteriores = detalleReservaRepository.findByReserva(reserva);
-                for (DetalleReserva detalle : detallesAnteriores) {
-                    Producto producto = detalle.getProducto();
-                    producto.setStockActual(producto.getStockActual() + detalle.getCantidad());
-                    productoRepository.save(producto);
-                }
-                detalleReservaRepository.deleteByReserva(reserva);
-
-                // Validar y actualizar stock para nuevos detalles
-                for (DetalleReservaDTO detalleDTO : reservaDTO.getDetalles()) {
-                    Producto producto = productoRepository.findById(detalleDTO.getProducto().getIdProducto())
-                            .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con ID: " + detalleDTO.getProducto().getIdProducto()));
-                    if (producto.getStockActual() < detalleDTO.getCantidad()) {
-                        throw new IllegalStateException("Stock insuficiente para el producto: " + producto.getNombre());
-                    }
-                    if (producto.getRequiereReceta() && (detalleDTO.getNotas() == null || !detalleDTO.getNotas().contains("Receta proporcionada"))) {
-                        throw new IllegalStateException("El producto " + producto.getNombre() + " requiere receta médica");
-                    }
-                    BigDecimal subtotal = producto.getPrecio().multiply(new BigDecimal(detalleDTO.getCantidad()));
-                    detalleDTO.setPrecioUnitario(producto.getPrecio());
-                    detalleDTO.setSubtotal(subtotal);
-                    detalleDTO.setDisponible(true);
-                    total = total.add(subtotal);
-                }
-                reservaDTO.setTotal(total);
+            Map<Long, Producto> productos = Map.of();
+            if (reemplazarDetalles) {
+                productos = cargarProductos(idsProductos(reservaDTO.getDetalles()));
+                reservaDTO.setTotal(validarYValorizar(reservaDTO.getDetalles(), productos));
             } else {
                 reservaDTO.setTotal(reserva.getTotal());
             }
 
-            // Actualizar reserva
+            // Actualizar reserva (valida método de notificación) antes de tocar el stock
             updateEntityFromDTO(reserva, reservaDTO);
+
+            // Primero se devuelve el stock de los detalles anteriores, luego se descuenta el de los nuevos
+            stockService.devolver(devueltas);
+            if (reemplazarDetalles) {
+                descontarStock(reservaDTO.getDetalles(), productos);
+                detalleReservaRepository.deleteByReserva(reserva);
+            }
             reserva = reservaRepository.save(reserva);
 
-            // Guardar nuevos detalles si se proporcionaron
-            if (reserva.getEstado() == Reserva.EstadoReserva.PENDIENTE && !reservaDTO.getDetalles().isEmpty()) {
-                for (DetalleReservaDTO detalleDTO : reservaDTO.getDetalles()) {
-                    Producto producto = productoRepository.findById(detalleDTO.getProducto().getIdProducto()).get();
-                    DetalleReserva detalle = new DetalleReserva();
-                    detalle.setReserva(reserva);
-                    detalle.setProducto(producto);
-                    detalle.setCantidad(detalleDTO.getCantidad());
-                    detalle.setPrecioUnitario(detalleDTO.getPrecioUnitario());
-                    detalle.setSubtotal(detalleDTO.getSubtotal());
-                    detalle.setDisponible(detalleDTO.getDisponible());
-                    detalle.setNotas(detalleDTO.getNotas());
-                    detalleReservaRepository.save(detalle);
-
-                    // Actualizar stock
-                    producto.setStockActual(producto.getStockActual() - detalleDTO.getCantidad());
-                    productoRepository.save(producto);
-                }
+            if (reemplazarDetalles) {
+                detalleReservaJdbcRepository.insertarTodos(reserva.getIdReserva(), reservaDTO.getDetalles());
             }
+            Set<Long> productosModificados = new HashSet<>(devueltas.keySet());
+            productosModificados.addAll(productos.keySet());
+            publicarCambioStock(productosModificados);
 
+            releerDesdeLaBase();
             return ResponseEntity.ok(convertToDTO(reserva));
         } catch (ConstraintViolationException e) {
+            deshacerTransaccion();
             String errorMessage = e.getConstraintViolations().stream()
                     .map(violation -> violation.getMessage())
                     .findFirst()
                     .orElse("Error de validación desconocido");
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("status", "error", "message", errorMessage));
+        } catch (StockInsuficienteException e) {
+            deshacerTransaccion();
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("status", "error", "message", e.getMessage(), "lineasSinStock", e.getLineas()));
         } catch (ResourceNotFoundException | IllegalStateException e) {
+            deshacerTransaccion();
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body(Map.of("status", "error", "message", e.getMessage()));
         } catch (Exception e) {
+            deshacerTransaccion();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("status", "error", "message", "Error al actualizar la reserva: " + e.getMessage()));
         }
@@ -248,26 +339,164 @@ public class ReservaController {
             Reserva reserva = reservaRepository.findById(id)
                     .orElseThrow(() -> new ResourceNotFoundException("Reserva no encontrada con ID: " + id));
             if (reserva.getEstado() == Reserva.EstadoReserva.PENDIENTE) {
-                List<DetalleReserva> detalles = detalleReservaRepository.findByReserva(reserva);
-                for (DetalleReserva detalle : detalles) {
-                    Producto producto = detalle.getProducto();
-                    producto.setStockActual(producto.getStockActual() + detalle.getCantidad());
-                    productoRepository.save(producto);
+                Map<Long, Integer> devueltas = new HashMap<>();
+                for (DetalleReserva detalle : detalleReservaRepository.findByReserva(reserva)) {
+                    devueltas.merge(detalle.getProducto().getIdProducto(), detalle.getCantidad(), Integer::sum);
                 }
+                stockService.devolver(devueltas);
+                publicarCambioStock(devueltas.keySet());
             }
             detalleReservaRepository.deleteByReserva(reserva);
             reservaRepository.delete(reserva);
             return ResponseEntity.noContent().build();
         } catch (ResourceNotFoundException e) {
+            deshacerTransaccion();
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                 .body(Map.of("status", "error", "message", e.getMessage()));
         } catch (Exception e) {
+            deshacerTransaccion();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("status", "error", "message", "Error al eliminar la reserva: " + e.getMessage()));
         }
     }
 
+    /**
+     * Marca la transacción para rollback. Los endpoints que escriben responden el error en lugar de
+     * propagar la excepción, y el stock se escribe antes de terminar: sin esto se confirmarían los
+     * cambios hechos hasta el error.
+     */
+    private static void deshacerTransaccion() {
+        TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+    }
+
+    // El cursor es "orden\nfecha\nidReserva" en Base64 URL-safe, opaco para el cliente
+    private String codificarCursor(ReservaBusquedaRepository.Orden orden, LocalDateTime fecha, Long idReserva) {
+        String valor = orden.name() + "\n" + fecha + "\n" + idReserva;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodificarCursor(String cursor, ReservaBusquedaRepository.Orden orden) {
+        String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\n");
+        // Un cursor de otro orden apuntaría a una posición sin sentido en este
+        if (partes.length != 3 || !partes[0].equals(orden.name())) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        return new String[] { partes[1], partes[2] };
+    }
+
+    private static Set<Long> idsProductos(List<DetalleReservaDTO> detalles) {
+        return detalles.stream()
+                .map(d -> d.getProducto().getIdProducto())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Carga los productos en una sola consulta, como solo lectura, en lugar de una consulta por detalle.
+     * La respuesta no los usa: vuelve a leer los detalles con producto y categoría tras el cambio de stock.
+     */
+    private Map<Long, Producto> cargarProductos(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Producto> productos = productoRepository.findAllByIdSoloLectura(ids).stream()
+                .collect(Collectors.toMap(Producto::getIdProducto, p -> p));
+        for (Long id : ids) {
+            if (!productos.containsKey(id)) {
+                throw new ResourceNotFoundException("Producto no encontrado con ID: " + id);
+            }
+        }
+        return productos;
+    }
+
+    /**
+     * Valida la receta médica de los detalles, completa precio unitario y subtotal y devuelve el
+     * total. El stock lo valida {@link #descontarStock} al descontarlo.
+     */
+    private BigDecimal validarYValorizar(List<DetalleReservaDTO> detalles, Map<Long, Producto> productos) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (DetalleReservaDTO detalleDTO : detalles) {
+            Producto producto = productos.get(detalleDTO.getProducto().getIdProducto());
+            if (producto.getRequiereReceta() && (detalleDTO.getNotas() == null || !detalleDTO.getNotas().contains("Receta proporcionada"))) {
+                throw new IllegalStateException("El producto " + producto.getNombre() + " requiere receta médica");
+            }
+            BigDecimal subtotal = producto.getPrecio().multiply(new BigDecimal(detalleDTO.getCantidad()));
+            detalleDTO.setPrecioUnitario(producto.getPrecio());
+            detalleDTO.setSubtotal(subtotal);
+            detalleDTO.setDisponible(true);
+            total = total.add(subtotal);
+        }
+        return total;
+    }
+
+    /**
+     * Descuenta el stock de los detalles en la base de datos. Las entidades cargadas no se tocan:
+     * la respuesta lee el stock resultante con {@link #releerDesdeLaBase}.
+     *
+     * @throws StockInsuficienteException con las líneas sin stock y sus productos en el mensaje
+     */
+    private void descontarStock(List<DetalleReservaDTO> detalles, Map<Long, Producto> productos) {
+        List<StockService.Linea> lineas = detalles.stream()
+                .map(d -> new StockService.Linea(d.getProducto().getIdProducto(), d.getCantidad()))
+                .collect(Collectors.toList());
+        try {
+            stockService.descontar(lineas);
+        } catch (StockInsuficienteException e) {
+            String nombres = e.getLineas().stream()
+                    .map(l -> productos.get(l.idProducto()).getNombre())
+                    .distinct()
+                    .collect(Collectors.joining(", "));
+            throw new StockInsuficienteException("Stock insuficiente para el producto: " + nombres, e.getLineas());
+        }
+    }
+
+    /**
+     * Escribe los cambios pendientes de la reserva y vacía el contexto de persistencia para que la
+     * respuesta lea de la base el stock que dejaron los UPDATE de {@link StockService}.
+     *
+     * Los productos del contexto nunca se modifican en memoria: alguno puede ser un proxy
+     * modificable (cargado por los detalles) y Hibernate escribiría en el flush un stock_actual
+     * calculado sobre una lectura anterior, pisando los descuentos de reservas concurrentes.
+     */
+    private void releerDesdeLaBase() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Avisa del cambio de stock para invalidar las vistas cacheadas del catálogo.
+     * Los listeners se ejecutan tras el commit de la transacción.
+     */
+    private void publicarCambioStock(Collection<Long> idsProductos) {
+        if (!idsProductos.isEmpty()) {
+            eventPublisher.publishEvent(CatalogoCambiadoEvent.productos(idsProductos));
+        }
+    }
+
     private ReservaDTO convertToDTO(Reserva reserva) {
+        return convertirTodas(List.of(reserva)).get(0);
+    }
+
+    /**
+     * Convierte las reservas a DTO cargando los detalles de todas (con producto y categoría) en una
+     * consulta por cada {@value #RESERVAS_POR_CONSULTA} reservas, en lugar de consultar los
+     * detalles de cada reserva y luego cada producto y cada categoría por separado.
+     * El cliente debe venir cargado (o estar en el contexto de persistencia).
+     */
+    private List<ReservaDTO> convertirTodas(List<Reserva> reservas) {
+        Map<Long, List<DetalleReserva>> detallesPorReserva = new HashMap<>();
+        for (int desde = 0; desde < reservas.size(); desde += RESERVAS_POR_CONSULTA) {
+            List<Reserva> lote = reservas.subList(desde, Math.min(desde + RESERVAS_POR_CONSULTA, reservas.size()));
+            for (DetalleReserva detalle : detalleReservaRepository.findConProductoByReservaIn(lote)) {
+                detallesPorReserva.computeIfAbsent(detalle.getReserva().getIdReserva(), k -> new ArrayList<>())
+                        .add(detalle);
+            }
+        }
+        return reservas.stream()
+                .map(r -> convertToDTO(r, detallesPorReserva.getOrDefault(r.getIdReserva(), List.of())))
+                .collect(Collectors.toList());
+    }
+
+    private ReservaDTO convertToDTO(Reserva reserva, List<DetalleReserva> detalles) {
         ReservaDTO dto = new ReservaDTO();
         dto.setIdReserva(reserva.getIdReserva());
         dto.setNumeroReserva(reserva.getNumeroReserva());
@@ -292,7 +521,6 @@ public class ReservaController {
         dto.setNotasFarmacia(reserva.getNotasFarmacia());
         dto.setMetodoNotificacion(reserva.getMetodoNotificacion() != null ? reserva.getMetodoNotificacion().name() : null);
         dto.setIdUsuarioAtencion(reserva.getUsuarioAtencion() != null ? reserva.getUsuarioAtencion().getIdUsuario() : null);
-        List<DetalleReserva> detalles = detalleReservaRepository.findByReserva(reserva);
         dto.setDetalles(detalles.stream().map(detalle -> {
             DetalleReservaDTO detalleDTO = new DetalleReservaDTO();
             detalleDTO.setIdReserva(reserva.getIdReserva());
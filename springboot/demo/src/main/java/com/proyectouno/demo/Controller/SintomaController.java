@@ -0,0 +1,278 @@
+package com.proyectouno.demo.Controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proyectouno.demo.DTO.ProductoDTO;
+import com.proyectouno.demo.DTO.ProductoSintomaDTO;
+import com.proyectouno.demo.DTO.SintomaDTO;
+import com.proyectouno.demo.models.Producto;
+import com.proyectouno.demo.models.ProductoSintoma;
+import com.proyectouno.demo.models.Sintoma;
+import com.proyectouno.demo.repository.ProductoRepository;
+import com.proyectouno.demo.repository.ProductoSintomaRepository;
+import com.proyectouno.demo.repository.SintomaRepository;
+import com.proyectouno.demo.service.CatalogoEnMemoria;
+import com.proyectouno.demo.service.DetectorSintomas;
+import com.proyectouno.demo.service.RecomendacionIndex;
+import com.proyectouno.demo.service.SintomasCambiadosEvent;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Síntomas, sus vínculos con productos y recomendaciones de productos por síntoma.
+ *
+ * Las recomendaciones se responden desde {@link RecomendacionIndex} (en memoria); las escrituras
+ * publican {@link SintomasCambiadosEvent} para que el índice recalcule los síntomas afectados.
+ */
+@RestController
+@RequestMapping("/api")
+@CrossOrigin(origins = {"http://127.0.0.1:5500", "http://localhost:5500", " http://localhost:5173/", " http://127.0.0.1:5173/"})
+public class SintomaController {
+
+    private static final int LIMITE_POR_DEFECTO = 10;
+    private static final int LIMITE_MAXIMO = 50;
+
+    @Autowired
+    private SintomaRepository sintomaRepository;
+
+    @Autowired
+    private ProductoSintomaRepository productoSintomaRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private RecomendacionIndex recomendacionIndex;
+
+    @Autowired
+    private CatalogoEnMemoria catalogoEnMemoria;
+
+    @Autowired
+    private DetectorSintomas detectorSintomas;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @GetMapping("/sintomas")
+    public ResponseEntity<List<SintomaDTO>> getAllSintomas() {
+        List<SintomaDTO> sintomas = sintomaRepository.findAll().stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(sintomas);
+    }
+
+    @GetMapping("/sintomas/{id}")
+    public ResponseEntity<?> getSintomaById(@PathVariable Long id) {
+        return sintomaRepository.findById(id)
+                .<ResponseEntity<?>>map(s -> ResponseEntity.ok(convertToDTO(s)))
+                .orElseGet(() -> noEncontrado("Síntoma no encontrado con ID: " + id));
+    }
+
+    @PostMapping("/sintomas")
+    public ResponseEntity<?> createSintoma(@Valid @RequestBody SintomaDTO sintomaDTO) {
+        String error = validarPalabrasClave(sintomaDTO.getPalabrasClave());
+        if (error != null) {
+            return ResponseEntity.badRequest().body(Map.of("error", error));
+        }
+        Sintoma sintoma = new Sintoma();
+        updateEntityFromDTO(sintoma, sintomaDTO);
+        sintoma.setFechaCreacion(LocalDateTime.now());
+        Sintoma saved = sintomaRepository.save(sintoma);
+        eventPublisher.publishEvent(SintomasCambiadosEvent.sintoma(saved.getIdSintoma()));
+        return ResponseEntity.status(HttpStatus.CREATED).body(convertToDTO(saved));
+    }
+
+    @PutMapping("/sintomas/{id}")
+    public ResponseEntity<?> updateSintoma(@PathVariable Long id, @Valid @RequestBody SintomaDTO sintomaDTO) {
+        String error = validarPalabrasClave(sintomaDTO.getPalabrasClave());
+        if (error != null) {
+            return ResponseEntity.badRequest().body(Map.of("error", error));
+        }
+        Sintoma sintoma = sintomaRepository.findById(id).orElse(null);
+        if (sintoma == null) {
+            return noEncontrado("Síntoma no encontrado con ID: " + id);
+        }
+        updateEntityFromDTO(sintoma, sintomaDTO);
+        Sintoma updated = sintomaRepository.save(sintoma);
+        eventPublisher.publishEvent(SintomasCambiadosEvent.sintoma(id));
+        return ResponseEntity.ok(convertToDTO(updated));
+    }
+
+    @DeleteMapping("/sintomas/{id}")
+    @Transactional
+    public ResponseEntity<?> deleteSintoma(@PathVariable Long id) {
+        Sintoma sintoma = sintomaRepository.findById(id).orElse(null);
+        if (sintoma == null) {
+            return noEncontrado("Síntoma no encontrado con ID: " + id);
+        }
+        productoSintomaRepository.deleteBySintoma(id);
+        sintomaRepository.delete(sintoma);
+        eventPublisher.publishEvent(SintomasCambiadosEvent.sintoma(id));
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Productos recomendados para un síntoma, ordenados por relevancia y stock.
+     */
+    @GetMapping("/sintomas/{id}/productos")
+    public ResponseEntity<?> getProductosPorSintoma(@PathVariable Long id,
+                                                    @RequestParam(required = false) Integer limite) {
+        List<Map<String, Object>> resultados = new ArrayList<>();
+        for (RecomendacionIndex.Recomendacion r : recomendacionIndex.porSintoma(id, limitar(limite))) {
+            ProductoDTO producto = catalogoEnMemoria.get(r.idProducto());
+            if (producto != null) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("producto", producto);
+                item.put("relevancia", r.relevancia());
+                item.put("puntaje", r.puntaje());
+                resultados.add(item);
+            }
+        }
+        return ResponseEntity.ok(resultados);
+    }
+
+    /**
+     * Vincula (o actualiza la relevancia de) un producto con el síntoma.
+     */
+    @PostMapping("/sintomas/{id}/productos")
+    public ResponseEntity<?> vincularProducto(@PathVariable Long id,
+                                              @RequestBody ProductoSintomaDTO vinculoDTO) {
+        // El síntoma viene en la ruta; se valida después de completarlo
+        vinculoDTO.setIdSintoma(id);
+        List<String> errores = validator.validate(vinculoDTO).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.toList());
+        if (!errores.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.join("; ", errores)));
+        }
+        Sintoma sintoma = sintomaRepository.findById(id).orElse(null);
+        if (sintoma == null) {
+            return noEncontrado("Síntoma no encontrado con ID: " + id);
+        }
+        Producto producto = productoRepository.findById(vinculoDTO.getIdProducto()).orElse(null);
+        if (producto == null) {
+            return noEncontrado("Producto no encontrado con ID: " + vinculoDTO.getIdProducto());
+        }
+        ProductoSintoma vinculo = productoSintomaRepository.findVinculo(id, producto.getIdProducto())
+                .orElseGet(() -> {
+                    ProductoSintoma nuevo = new ProductoSintoma();
+                    nuevo.setSintoma(sintoma);
+                    nuevo.setProducto(producto);
+                    nuevo.setFechaCreacion(LocalDateTime.now());
+                    return nuevo;
+                });
+        vinculo.setRelevancia(vinculoDTO.getRelevancia());
+        productoSintomaRepository.save(vinculo);
+        eventPublisher.publishEvent(SintomasCambiadosEvent.sintoma(id));
+        return ResponseEntity.ok(vinculoDTO);
+    }
+
+    @DeleteMapping("/sintomas/{id}/productos/{idProducto}")
+    public ResponseEntity<?> desvincularProducto(@PathVariable Long id, @PathVariable Long idProducto) {
+        ProductoSintoma vinculo = productoSintomaRepository.findVinculo(id, idProducto).orElse(null);
+        if (vinculo == null) {
+            return noEncontrado("El producto " + idProducto + " no está vinculado al síntoma " + id);
+        }
+        productoSintomaRepository.delete(vinculo);
+        eventPublisher.publishEvent(SintomasCambiadosEvent.sintoma(id));
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Detecta los síntomas mencionados en un texto libre y devuelve las recomendaciones para ellos.
+     */
+    @GetMapping("/sintomas/detectar")
+    public ResponseEntity<?> detectarSintomas(@RequestParam String texto,
+                                              @RequestParam(required = false) Integer limite) {
+        List<DetectorSintomas.Coincidencia> sintomas = detectorSintomas.detectar(texto);
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("sintomas", sintomas);
+        respuesta.put("recomendaciones", recomendaciones(
+                sintomas.stream().map(DetectorSintomas.Coincidencia::idSintoma).toList(), limitar(limite)));
+        return ResponseEntity.ok(respuesta);
+    }
+
+    /**
+     * Recomendaciones para varios síntomas a la vez (?sintomas=1,2,3). Primero aparecen los
+     * productos que cubren más síntomas.
+     */
+    @GetMapping("/recomendaciones")
+    public ResponseEntity<?> getRecomendaciones(@RequestParam List<Long> sintomas,
+                                                @RequestParam(required = false) Integer limite) {
+        return ResponseEntity.ok(recomendaciones(sintomas, limitar(limite)));
+    }
+
+    private List<Map<String, Object>> recomendaciones(List<Long> sintomas, int limite) {
+        List<Map<String, Object>> resultados = new ArrayList<>();
+        for (RecomendacionIndex.Combinada r : recomendacionIndex.porSintomas(sintomas, limite)) {
+            ProductoDTO producto = catalogoEnMemoria.get(r.idProducto());
+            if (producto != null) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("producto", producto);
+                item.put("sintomasCubiertos", r.sintomasCubiertos());
+                item.put("puntaje", r.puntaje());
+                resultados.add(item);
+            }
+        }
+        return resultados;
+    }
+
+    private int limitar(Integer limite) {
+        return limite == null ? LIMITE_POR_DEFECTO : Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+    }
+
+    private ResponseEntity<?> noEncontrado(String mensaje) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", mensaje));
+    }
+
+    // palabrasClave debe ser un arreglo JSON de textos, p. ej. ["fiebre", "temperatura alta"]
+    private String validarPalabrasClave(String palabrasClave) {
+        if (palabrasClave == null || palabrasClave.isBlank()) {
+            return null;
+        }
+        try {
+            objectMapper.readValue(palabrasClave, new TypeReference<List<String>>() {});
+            return null;
+        } catch (JsonProcessingException e) {
+            return "palabrasClave debe ser un arreglo JSON de textos";
+        }
+    }
+
+    private SintomaDTO convertToDTO(Sintoma sintoma) {
+        SintomaDTO dto = new SintomaDTO();
+        dto.setIdSintoma(sintoma.getIdSintoma());
+        dto.setNombre(sintoma.getNombre());
+        dto.setDescripcion(sintoma.getDescripcion());
+        dto.setPalabrasClave(sintoma.getPalabrasClave());
+        return dto;
+    }
+
+    private void updateEntityFromDTO(Sintoma sintoma, SintomaDTO dto) {
+        sintoma.setNombre(dto.getNombre());
+        sintoma.setDescripcion(dto.getDescripcion());
+        sintoma.setPalabrasClave(dto.getPalabrasClave() == null || dto.getPalabrasClave().isBlank()
+                ? null : dto.getPalabrasClave());
+    }
+}
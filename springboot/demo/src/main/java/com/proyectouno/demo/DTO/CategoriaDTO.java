@@ -23,6 +23,19 @@ public class CategoriaDTO {
 
     private Integer orden;
 
+    public CategoriaDTO() {}
+
+    // Constructor para proyecciones JPQL (SELECT new ...): evita cargar entidades administradas
+    public CategoriaDTO(Long idCategoria, String nombre, String descripcion, String imagenUrl, Boolean estado,
+                        Integer orden) {
+        this.idCategoria = idCategoria;
+        this.nombre = nombre;
+        this.descripcion = descripcion;
+        this.imagenUrl = imagenUrl;
+        this.estado = estado;
+        this.orden = orden;
+    }
+
     // Getters y Setters
     public Long getIdCategoria() { return idCategoria; }
     public void setIdCategoria(Long idCategoria) { this.idCategoria = idCategoria; }
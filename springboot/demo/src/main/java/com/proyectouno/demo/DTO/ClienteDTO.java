@@ -40,6 +40,24 @@ public class ClienteDTO {
     @NotNull(message = "El campo aceptaNotificaciones no puede ser nulo")
     private Boolean aceptaNotificaciones;
 
+    public ClienteDTO() {}
+
+    // Constructor para proyecciones JPQL (SELECT new ...): evita cargar entidades administradas
+    public ClienteDTO(Long idCliente, String nombre, String email, String dni, String telefono, String direccion,
+                      LocalDate fechaNacimiento, Boolean tieneCondicionCronica, String notasEspeciales,
+                      Boolean aceptaNotificaciones) {
+        this.idCliente = idCliente;
+        this.nombre = nombre;
+        this.email = email;
+        this.dni = dni;
+        this.telefono = telefono;
+        this.direccion = direccion;
+        this.fechaNacimiento = fechaNacimiento;
+        this.tieneCondicionCronica = tieneCondicionCronica;
+        this.notasEspeciales = notasEspeciales;
+        this.aceptaNotificaciones = aceptaNotificaciones;
+    }
+
     // Getters y Setters
     public Long getIdCliente() { return idCliente; }
     public void setIdCliente(Long idCliente) { this.idCliente = idCliente; }
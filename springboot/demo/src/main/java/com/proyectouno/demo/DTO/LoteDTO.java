@@ -1,5 +1,6 @@
 package com.proyectouno.demo.DTO;
 
+import com.proyectouno.demo.models.Lote;
 import jakarta.validation.constraints.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -42,6 +43,26 @@ public class LoteDTO {
 
     private String observaciones;
 
+    public LoteDTO() {}
+
+    // Constructor para proyecciones JPQL (SELECT new ...): evita cargar entidades administradas
+    public LoteDTO(Long idLote, Long idProducto, String nombreProducto, String numeroLote, LocalDate fechaVencimiento,
+                   Integer stockInicial, Integer stockActual, BigDecimal costoUnitario, String proveedor,
+                   LocalDate fechaIngreso, Lote.EstadoLote estado, String observaciones) {
+        this.idLote = idLote;
+        this.idProducto = idProducto;
+        this.nombreProducto = nombreProducto;
+        this.numeroLote = numeroLote;
+        this.fechaVencimiento = fechaVencimiento;
+        this.stockInicial = stockInicial;
+        this.stockActual = stockActual;
+        this.costoUnitario = costoUnitario;
+        this.proveedor = proveedor;
+        this.fechaIngreso = fechaIngreso;
+        this.estado = estado != null ? estado.toString() : null;
+        this.observaciones = observaciones;
+    }
+
     // Getters y Setters
     public Long getIdLote() { return idLote; }
     public void setIdLote(Long idLote) { this.idLote = idLote; }
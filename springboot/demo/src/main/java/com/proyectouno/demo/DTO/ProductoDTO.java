@@ -39,7 +39,9 @@ public class ProductoDTO {
     // ✅ Este campo NO debe tener @NotNull porque se llena solo desde el backend.
     private String categoriaNombre;
 
+    @Size(max = 255, message = "La URL de la imagen no puede exceder los 255 caracteres")
     private String imagenPrincipal;
+
     private List<String> imagenesAdicionales;
 
     @NotNull(message = "El campo requiereReceta no puede ser nulo")
@@ -49,9 +51,17 @@ public class ProductoDTO {
     private Boolean esControlado;
 
     private LocalDate fechaVencimiento;
+
+    @Size(max = 100, message = "El laboratorio no puede exceder los 100 caracteres")
     private String laboratorio;
+
+    @Size(max = 200, message = "El principio activo no puede exceder los 200 caracteres")
     private String principioActivo;
+
+    @Size(max = 50, message = "La concentración no puede exceder los 50 caracteres")
     private String concentracion;
+
+    @Size(max = 50, message = "La forma farmacéutica no puede exceder los 50 caracteres")
     private String formaFarmaceutica;
 
     @NotNull(message = "El estado no puede ser nulo")
@@ -83,6 +93,33 @@ public class ProductoDTO {
         this.estado = producto.getEstado();
     }
 
+    // 🔹 Constructor para proyecciones JPQL (SELECT new ...): evita cargar entidades administradas
+    public ProductoDTO(Long idProducto, String codigoBarras, String nombre, String descripcion, BigDecimal precio,
+                       Integer stockActual, Integer stockMinimo, Long idCategoria, String categoriaNombre,
+                       String imagenPrincipal, List<String> imagenesAdicionales, Boolean requiereReceta,
+                       Boolean esControlado, LocalDate fechaVencimiento, String laboratorio, String principioActivo,
+                       String concentracion, String formaFarmaceutica, Boolean estado) {
+        this.idProducto = idProducto;
+        this.codigoBarras = codigoBarras;
+        this.nombre = nombre;
+        this.descripcion = descripcion;
+        this.precio = precio;
+        this.stockActual = stockActual;
+        this.stockMinimo = stockMinimo;
+        this.idCategoria = idCategoria;
+        this.categoriaNombre = categoriaNombre;
+        this.imagenPrincipal = imagenPrincipal;
+        this.imagenesAdicionales = imagenesAdicionales;
+        this.requiereReceta = requiereReceta;
+        this.esControlado = esControlado;
+        this.fechaVencimiento = fechaVencimiento;
+        this.laboratorio = laboratorio;
+        this.principioActivo = principioActivo;
+        this.concentracion = concentracion;
+        this.formaFarmaceutica = formaFarmaceutica;
+        this.estado = estado;
+    }
+
     // 🔹 Getters y Setters
     public Long getIdProducto() { return idProducto; }
     public void setIdProducto(Long idProducto) { this.idProducto = idProducto; }
@@ -8,6 +8,8 @@ import jakarta.validation.constraints.*;
  */
 public class SintomaDTO {
 
+    private Long idSintoma;
+
     @NotNull(message = "El nombre no puede ser nulo")
     @Size(max = 100, message = "El nombre no puede exceder los 100 caracteres")
     private String nombre;
@@ -17,6 +19,8 @@ public class SintomaDTO {
     private String palabrasClave;
 
     // Getters y Setters
+    public Long getIdSintoma() { return idSintoma; }
+    public void setIdSintoma(Long idSintoma) { this.idSintoma = idSintoma; }
     public String getNombre() { return nombre; }
     public void setNombre(String nombre) { this.nombre = nombre; }
     public String getDescripcion() { return descripcion; }
@@ -0,0 +1,27 @@
+package com.proyectouno.demo.exceptions;
+
+import java.util.List;
+
+/**
+ * Alguna línea de una reserva no pudo descontarse porque el producto no tenía stock suficiente
+ * al momento de actualizarlo. Lleva las líneas que fallaron.
+ */
+public class StockInsuficienteException extends IllegalStateException {
+
+    private final List<LineaSinStock> lineas;
+
+    public StockInsuficienteException(String message, List<LineaSinStock> lineas) {
+        super(message);
+        this.lineas = List.copyOf(lineas);
+    }
+
+    public List<LineaSinStock> getLineas() {
+        return lineas;
+    }
+
+    /**
+     * @param linea posición (desde 0) de la línea en los detalles de la reserva
+     */
+    public record LineaSinStock(int linea, Long idProducto, int cantidad) {
+    }
+}
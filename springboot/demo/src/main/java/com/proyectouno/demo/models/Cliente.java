@@ -10,7 +10,10 @@ import java.time.LocalDateTime;
  * Almacena información de los clientes que realizan reservas.
  */
 @Entity
-@Table(name = "clientes")
+@Table(name = "clientes", indexes = {
+        // Búsqueda de clientes y de sus reservas por DNI
+        @Index(name = "idx_clientes_dni", columnList = "dni")
+})
 public class Cliente {
 
     /** Identificador único del cliente (Primary Key). */
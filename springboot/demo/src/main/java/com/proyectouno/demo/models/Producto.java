@@ -10,7 +10,13 @@ import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
 @Entity
-@Table(name = "productos")
+@Table(name = "productos", indexes = {
+        // Índices para la paginación por cursor (nombre, id) y los filtros del catálogo
+        @Index(name = "idx_productos_nombre_id", columnList = "nombre, id_producto"),
+        @Index(name = "idx_productos_categoria_nombre_id", columnList = "id_categoria, nombre, id_producto"),
+        @Index(name = "idx_productos_laboratorio_nombre_id", columnList = "laboratorio, nombre, id_producto"),
+        @Index(name = "idx_productos_estado_nombre_id", columnList = "estado, nombre, id_producto")
+})
 public class Producto {
 
     @Id
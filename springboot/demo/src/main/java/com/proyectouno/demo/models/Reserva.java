@@ -10,7 +10,15 @@ import java.time.LocalDateTime;
  * Gestiona las reservas de productos realizadas por clientes.
  */
 @Entity
-@Table(name = "reservas")
+@Table(name = "reservas", indexes = {
+        @Index(name = "ux_reservas_numero_reserva", columnList = "numero_reserva", unique = true),
+        // Índices de la búsqueda paginada por cursor: filtro de igualdad, luego la fecha de orden e id
+        @Index(name = "idx_reservas_estado_retiro_id", columnList = "estado, fecha_limite_retiro, id_reserva"),
+        @Index(name = "idx_reservas_estado_fecha_id", columnList = "estado, fecha_reserva, id_reserva"),
+        @Index(name = "idx_reservas_cliente_fecha_id", columnList = "id_cliente, fecha_reserva, id_reserva"),
+        @Index(name = "idx_reservas_usuario_fecha_id", columnList = "id_usuario_atencion, fecha_reserva, id_reserva"),
+        @Index(name = "idx_reservas_fecha_id", columnList = "fecha_reserva, id_reserva")
+})
 public class Reserva {
 
     /** Identificador único de la reserva (Primary Key). */
@@ -21,7 +29,7 @@ public class Reserva {
     /** Número de reserva generado automáticamente. */
     @NotNull(message = "El número de reserva no puede ser nulo")
     @Size(max = 20, message = "El número de reserva no puede exceder los 20 caracteres")
-    @Column(length = 20, nullable = false, unique = true)
+    @Column(name = "numero_reserva", length = 20, nullable = false)
     private String numeroReserva;
 
     /** Cliente que realiza la reserva. */
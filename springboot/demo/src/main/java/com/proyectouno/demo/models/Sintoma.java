@@ -3,6 +3,8 @@ package com.proyectouno.demo.models;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.time.LocalDateTime;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 /**
  * Entidad que representa la tabla "sintomas" en la base de datos.
@@ -27,7 +29,8 @@ public class Sintoma {
     @Column(columnDefinition = "TEXT")
     private String descripcion;
 
-    /** Array de palabras relacionadas. */
+    /** Array de palabras relacionadas (texto JSON, p. ej. ["cefalea", "dolor de cabeza"]). */
+    @JdbcTypeCode(SqlTypes.JSON)
     @Column(columnDefinition = "JSON")
     private String palabrasClave;
 
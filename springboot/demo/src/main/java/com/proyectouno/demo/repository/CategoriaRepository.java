@@ -1,9 +1,24 @@
 package com.proyectouno.demo.repository;
 
+import com.proyectouno.demo.DTO.CategoriaDTO;
 import com.proyectouno.demo.models.Categoria;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface CategoriaRepository extends JpaRepository<Categoria, Long> {
+
+    @Query("SELECT MAX(COALESCE(c.fechaActualizacion, c.fechaCreacion)) FROM Categoria c")
+    LocalDateTime findUltimaModificacion();
+
+    /**
+     * Proyección de solo lectura del listado de categorías (sin entidades administradas).
+     */
+    @Query("SELECT new com.proyectouno.demo.DTO.CategoriaDTO(c.idCategoria, c.nombre, c.descripcion, " +
+           "c.imagenUrl, c.estado, c.orden) FROM Categoria c")
+    List<CategoriaDTO> findAllDTO();
 }
\ No newline at end of file
@@ -1,8 +1,15 @@
 package com.proyectouno.demo.repository;
 
+import com.proyectouno.demo.DTO.ClienteDTO;
 import com.proyectouno.demo.models.Cliente;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 /**
  * Repositorio de la entidad Cliente.
  * 
@@ -30,4 +37,26 @@ public interface ClienteRepository extends JpaRepository<Cliente, Long> {
     Optional<Cliente> findByDni(String dni);
     Optional<Cliente> findByEmail(String email);
 
+    /**
+     * Proyección de solo lectura del listado de clientes: los DTO se crean directamente desde
+     * la consulta, sin cargar entidades en el contexto de persistencia.
+     */
+    @Query("SELECT new com.proyectouno.demo.DTO.ClienteDTO(c.idCliente, c.nombre, c.email, c.dni, c.telefono, " +
+           "c.direccion, c.fechaNacimiento, c.tieneCondicionCronica, c.notasEspeciales, c.aceptaNotificaciones) " +
+           "FROM Cliente c")
+    List<ClienteDTO> findAllDTO();
+
+    /**
+     * Igual que {@link #findAllDTO()} pero como cursor de solo avance para exportaciones grandes.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.proyectouno.demo.DTO.ClienteDTO(c.idCliente, c.nombre, c.email, c.dni, c.telefono, " +
+           "c.direccion, c.fechaNacimiento, c.tieneCondicionCronica, c.notasEspeciales, c.aceptaNotificaciones) " +
+           "FROM Cliente c ORDER BY c.idCliente")
+    Stream<ClienteDTO> streamAllDTO();
+
 }
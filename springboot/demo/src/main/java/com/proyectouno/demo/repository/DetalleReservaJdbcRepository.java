@@ -0,0 +1,40 @@
+package com.proyectouno.demo.repository;
+
+import com.proyectouno.demo.DTO.DetalleReservaDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Escrituras de detalles de reserva por JDBC.
+ *
+ * DetalleReserva usa IDENTITY, y con IDENTITY Hibernate inserta fila por fila (necesita cada id
+ * generado al momento). Aquí los detalles de una reserva se insertan en un solo batch; con
+ * reWriteBatchedInserts el driver los envía como un único INSERT multi-fila.
+ */
+@Repository
+public class DetalleReservaJdbcRepository {
+
+    private static final String INSERT = "INSERT INTO detalle_reservas (id_reserva, id_producto, cantidad, " +
+            "precio_unitario, subtotal, disponible, notas) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserta los detalles (ya validados y con precio y subtotal calculados) de la reserva.
+     * Debe llamarse dentro de la transacción que creó o actualizó la reserva.
+     */
+    public void insertarTodos(Long idReserva, List<DetalleReservaDTO> detalles) {
+        List<Object[]> filas = new ArrayList<>(detalles.size());
+        for (DetalleReservaDTO detalle : detalles) {
+            filas.add(new Object[]{idReserva, detalle.getProducto().getIdProducto(), detalle.getCantidad(),
+                    detalle.getPrecioUnitario(), detalle.getSubtotal(),
+                    detalle.getDisponible() == null || detalle.getDisponible(), detalle.getNotas()});
+        }
+        jdbcTemplate.batchUpdate(INSERT, filas);
+    }
+}
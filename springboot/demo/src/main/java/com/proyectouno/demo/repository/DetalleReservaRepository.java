@@ -3,10 +3,41 @@ package com.proyectouno.demo.repository;
 import com.proyectouno.demo.models.DetalleReserva;
 import com.proyectouno.demo.models.Reserva;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface DetalleReservaRepository extends JpaRepository<DetalleReserva, Long> {
     List<DetalleReserva> findByReserva(Reserva reserva);
-    void deleteByReserva(Reserva reserva);
+
+    /**
+     * Detalles de varias reservas con su producto y la categoría del producto en una sola consulta,
+     * para armar las respuestas sin cargar cada producto y categoría por separado.
+     * Conviene pasar las reservas en lotes acotados (cada una es un parámetro del IN).
+     */
+    @Query("SELECT d FROM DetalleReserva d JOIN FETCH d.producto p LEFT JOIN FETCH p.categoria " +
+           "WHERE d.reserva IN :reservas ORDER BY d.idDetalle")
+    List<DetalleReserva> findConProductoByReservaIn(@Param("reservas") Collection<Reserva> reservas);
+
+    /**
+     * Borra los detalles de la reserva con un único DELETE (el derivado deleteByReserva carga y
+     * borra cada detalle por separado).
+     */
+    @Modifying
+    @Query("DELETE FROM DetalleReserva d WHERE d.reserva = :reserva")
+    void deleteByReserva(@Param("reserva") Reserva reserva);
+
+    /**
+     * Unidades reservadas por producto (idProducto, suma de cantidades).
+     * Se usa como medida de popularidad.
+     */
+    @Query("SELECT d.producto.idProducto, SUM(d.cantidad) FROM DetalleReserva d GROUP BY d.producto.idProducto")
+    List<Object[]> sumCantidadPorProducto();
+
+    @Query("SELECT d.producto.idProducto, SUM(d.cantidad) FROM DetalleReserva d " +
+           "WHERE d.producto.idProducto IN :ids GROUP BY d.producto.idProducto")
+    List<Object[]> sumCantidadPorProducto(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -1,10 +1,15 @@
 package com.proyectouno.demo.repository;
 
+import com.proyectouno.demo.DTO.LoteDTO;
 import com.proyectouno.demo.models.Lote;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface LoteRepository extends JpaRepository<Lote, Long> {
@@ -12,6 +17,26 @@ public interface LoteRepository extends JpaRepository<Lote, Long> {
     @Query("SELECT l FROM Lote l LEFT JOIN FETCH l.producto")
     List<Lote> findAllWithProducto();
 
+    /**
+     * Proyección de solo lectura del listado de lotes (sin entidades administradas).
+     */
+    @Query("SELECT new com.proyectouno.demo.DTO.LoteDTO(l.idLote, p.idProducto, p.nombre, l.numeroLote, " +
+           "l.fechaVencimiento, l.stockInicial, l.stockActual, l.costoUnitario, l.proveedor, l.fechaIngreso, " +
+           "l.estado, l.observaciones) FROM Lote l JOIN l.producto p")
+    List<LoteDTO> findAllDTO();
+
+    /**
+     * Igual que {@link #findAllDTO()} pero como cursor de solo avance para exportaciones grandes.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.proyectouno.demo.DTO.LoteDTO(l.idLote, p.idProducto, p.nombre, l.numeroLote, " +
+           "l.fechaVencimiento, l.stockInicial, l.stockActual, l.costoUnitario, l.proveedor, l.fechaIngreso, " +
+           "l.estado, l.observaciones) FROM Lote l JOIN l.producto p ORDER BY l.idLote")
+    Stream<LoteDTO> streamAllDTO();
+
     @Query("SELECT l FROM Lote l WHERE l.producto.idProducto = :idProducto")
     List<Lote> findByProductoId(Long idProducto);
 
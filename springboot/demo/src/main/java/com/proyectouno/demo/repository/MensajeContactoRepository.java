@@ -2,9 +2,14 @@ package com.proyectouno.demo.repository;
 
 import com.proyectouno.demo.models.Cliente;
 import com.proyectouno.demo.models.MensajeContacto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
+import java.util.stream.Stream;
 /**
  * Repositorio de la entidad MensajeContacto.
  *
@@ -28,5 +33,16 @@ public interface MensajeContactoRepository extends JpaRepository<MensajeContacto
      * @return Una lista de mensajes de contacto asociados al cliente.
      */
     List<MensajeContacto> findByCliente(Cliente cliente);
+
+    /**
+     * Todos los mensajes con su cliente, como cursor de solo avance para exportaciones grandes.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT m FROM MensajeContacto m JOIN FETCH m.cliente ORDER BY m.id")
+    Stream<MensajeContacto> streamAllWithCliente();
 }
 
@@ -0,0 +1,80 @@
+package com.proyectouno.demo.repository;
+
+import com.proyectouno.demo.DTO.ProductoDTO;
+import com.proyectouno.demo.models.Producto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Repository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Página del catálogo ordenada por (nombre, idProducto), con paginación por cursor (keyset).
+ *
+ * Igual que {@link ReservaBusquedaRepository}, la consulta se arma solo con los filtros presentes
+ * para que cada combinación use el índice compuesto correspondiente de {@link Producto}, y la
+ * página siguiente continúa con {@code (p.nombre, p.idProducto) > (:nombre, :id)}.
+ */
+@Repository
+public class ProductoBusquedaRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Página de productos proyectada directamente a {@link ProductoDTO}, sin entidades administradas.
+     *
+     * @param cursorNombre nombre del último elemento de la página anterior, o null para la primera
+     * @param cursorId     idProducto del último elemento de la página anterior, o null
+     * @param limite       cantidad máxima de productos a devolver
+     */
+    public List<ProductoDTO> buscarPagina(Filtro filtro, String cursorNombre, Long cursorId, int limite) {
+        StringBuilder jpql = new StringBuilder("SELECT new com.proyectouno.demo.DTO.ProductoDTO(p.idProducto, " +
+                "p.codigoBarras, p.nombre, p.descripcion, p.precio, p.stockActual, p.stockMinimo, c.idCategoria, " +
+                "COALESCE(c.nombre, 'Sin categoría'), p.imagenPrincipal, p.imagenesAdicionales, p.requiereReceta, " +
+                "p.esControlado, p.fechaVencimiento, p.laboratorio, p.principioActivo, p.concentracion, " +
+                "p.formaFarmaceutica, p.estado) FROM Producto p LEFT JOIN p.categoria c WHERE 1 = 1");
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        if (filtro.idCategoria() != null) {
+            jpql.append(" AND c.idCategoria = :idCategoria");
+            parametros.put("idCategoria", filtro.idCategoria());
+        }
+        if (filtro.requiereReceta() != null) {
+            jpql.append(" AND p.requiereReceta = :requiereReceta");
+            parametros.put("requiereReceta", filtro.requiereReceta());
+        }
+        if (filtro.esControlado() != null) {
+            jpql.append(" AND p.esControlado = :esControlado");
+            parametros.put("esControlado", filtro.esControlado());
+        }
+        if (filtro.laboratorio() != null) {
+            jpql.append(" AND p.laboratorio = :laboratorio");
+            parametros.put("laboratorio", filtro.laboratorio());
+        }
+        if (filtro.estado() != null) {
+            jpql.append(" AND p.estado = :estado");
+            parametros.put("estado", filtro.estado());
+        }
+        if (cursorNombre != null && cursorId != null) {
+            jpql.append(" AND (p.nombre, p.idProducto) > (:cursorNombre, :cursorId)");
+            parametros.put("cursorNombre", cursorNombre);
+            parametros.put("cursorId", cursorId);
+        }
+        jpql.append(" ORDER BY p.nombre ASC, p.idProducto ASC");
+
+        TypedQuery<ProductoDTO> query = entityManager.createQuery(jpql.toString(), ProductoDTO.class);
+        parametros.forEach(query::setParameter);
+        query.setMaxResults(limite);
+        return query.getResultList();
+    }
+
+    /**
+     * Filtros del catálogo; los null no se aplican.
+     */
+    public record Filtro(Long idCategoria, Boolean requiereReceta, Boolean esControlado,
+                         String laboratorio, Boolean estado) {
+    }
+}
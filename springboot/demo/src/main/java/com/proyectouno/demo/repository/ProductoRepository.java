@@ -1,10 +1,18 @@
 package com.proyectouno.demo.repository;
 
+import com.proyectouno.demo.DTO.ProductoDTO;
 import com.proyectouno.demo.models.Producto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductoRepository extends JpaRepository<Producto, Long> {
@@ -12,4 +20,39 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     @Query("SELECT p FROM Producto p LEFT JOIN FETCH p.categoria")
     List<Producto> findAllWithCategoria();
 
+    /**
+     * Proyección de solo lectura: construye los DTO directamente desde el resultado de la consulta,
+     * sin entidades administradas (sin snapshots para dirty checking ni proxies de categoría).
+     */
+    @Query("SELECT new com.proyectouno.demo.DTO.ProductoDTO(p.idProducto, p.codigoBarras, p.nombre, " +
+           "p.descripcion, p.precio, p.stockActual, p.stockMinimo, c.idCategoria, COALESCE(c.nombre, 'Sin categoría'), " +
+           "p.imagenPrincipal, p.imagenesAdicionales, p.requiereReceta, p.esControlado, p.fechaVencimiento, " +
+           "p.laboratorio, p.principioActivo, p.concentracion, p.formaFarmaceutica, p.estado) " +
+           "FROM Producto p LEFT JOIN p.categoria c ")
+    List<ProductoDTO> findAllDTO();
+
+    @Query("SELECT new com.proyectouno.demo.DTO.ProductoDTO(p.idProducto, p.codigoBarras, p.nombre, " +
+           "p.descripcion, p.precio, p.stockActual, p.stockMinimo, c.idCategoria, COALESCE(c.nombre, 'Sin categoría'), " +
+           "p.imagenPrincipal, p.imagenesAdicionales, p.requiereReceta, p.esControlado, p.fechaVencimiento, " +
+           "p.laboratorio, p.principioActivo, p.concentracion, p.formaFarmaceutica, p.estado) " +
+           "FROM Producto p LEFT JOIN p.categoria c WHERE p.idProducto IN :ids")
+    List<ProductoDTO> findAllDTOByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Productos de una reserva en una sola consulta, sin bloqueo y como solo lectura (sin snapshot
+     * para dirty checking): el stock se modifica con {@link com.proyectouno.demo.service.StockService}
+     * y los cambios que se hagan en estas entidades no se escriben.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT p FROM Producto p WHERE p.idProducto IN :ids")
+    List<Producto> findAllByIdSoloLectura(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT MAX(COALESCE(p.fechaActualizacion, p.fechaCreacion)) FROM Producto p")
+    LocalDateTime findUltimaModificacion();
+
+    /**
+     * Búsqueda por código de barras; usa el índice único de codigo_barras.
+     */
+    Optional<Producto> findByCodigoBarras(String codigoBarras);
+
 }
@@ -0,0 +1,37 @@
+package com.proyectouno.demo.repository;
+
+import com.proyectouno.demo.models.ProductoSintoma;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ProductoSintomaRepository extends JpaRepository<ProductoSintoma, Long> {
+
+    /**
+     * Todos los vínculos como filas [idSintoma, idProducto, relevancia], sin cargar entidades.
+     */
+    @Query("SELECT ps.sintoma.idSintoma, ps.producto.idProducto, ps.relevancia FROM ProductoSintoma ps")
+    List<Object[]> findVinculos();
+
+    /**
+     * Vínculos [idSintoma, idProducto, relevancia] de los síntomas indicados.
+     */
+    @Query("SELECT ps.sintoma.idSintoma, ps.producto.idProducto, ps.relevancia FROM ProductoSintoma ps " +
+           "WHERE ps.sintoma.idSintoma IN :ids")
+    List<Object[]> findVinculosBySintomaIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT ps FROM ProductoSintoma ps WHERE ps.sintoma.idSintoma = :idSintoma " +
+           "AND ps.producto.idProducto = :idProducto")
+    Optional<ProductoSintoma> findVinculo(@Param("idSintoma") Long idSintoma, @Param("idProducto") Long idProducto);
+
+    @Modifying
+    @Query("DELETE FROM ProductoSintoma ps WHERE ps.sintoma.idSintoma = :idSintoma")
+    int deleteBySintoma(@Param("idSintoma") Long idSintoma);
+}
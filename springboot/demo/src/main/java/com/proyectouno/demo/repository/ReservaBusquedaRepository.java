@@ -0,0 +1,109 @@
+package com.proyectouno.demo.repository;
+
+import com.proyectouno.demo.models.Reserva;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Búsqueda paginada de reservas para la consola de caja, con paginación por cursor (keyset).
+ *
+ * La consulta se arma solo con los filtros presentes, en lugar de {@code (:x IS NULL OR ...)}:
+ * así cada combinación de filtros produce una condición simple que PostgreSQL resuelve con el
+ * índice compuesto correspondiente de {@link Reserva}. La página siguiente continúa desde el
+ * último elemento con una comparación de filas {@code (fecha, idReserva) > (:fecha, :id)}, que el
+ * índice resuelve como el inicio de un rango: sin OFFSET y con el mismo costo en cualquier página.
+ */
+@Repository
+public class ReservaBusquedaRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Página de reservas con su cliente, ordenada según {@code orden} y desempatada por idReserva.
+     *
+     * @param cursorFecha valor de la fecha de orden del último elemento de la página anterior, o null
+     * @param cursorId    idReserva del último elemento de la página anterior, o null
+     * @param limite      cantidad máxima de reservas a devolver
+     */
+    public List<Reserva> buscar(Filtro filtro, Orden orden, LocalDateTime cursorFecha, Long cursorId, int limite) {
+        StringBuilder jpql = new StringBuilder("SELECT r FROM Reserva r JOIN FETCH r.cliente c WHERE 1 = 1");
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        if (filtro.estado() != null) {
+            jpql.append(" AND r.estado = :estado");
+            parametros.put("estado", filtro.estado());
+        }
+        if (filtro.reservadaDesde() != null) {
+            jpql.append(" AND r.fechaReserva >= :reservadaDesde");
+            parametros.put("reservadaDesde", filtro.reservadaDesde());
+        }
+        if (filtro.reservadaHasta() != null) {
+            jpql.append(" AND r.fechaReserva < :reservadaHasta");
+            parametros.put("reservadaHasta", filtro.reservadaHasta());
+        }
+        if (filtro.retiroDesde() != null) {
+            jpql.append(" AND r.fechaLimiteRetiro >= :retiroDesde");
+            parametros.put("retiroDesde", filtro.retiroDesde());
+        }
+        if (filtro.retiroHasta() != null) {
+            jpql.append(" AND r.fechaLimiteRetiro < :retiroHasta");
+            parametros.put("retiroHasta", filtro.retiroHasta());
+        }
+        if (filtro.idCliente() != null) {
+            jpql.append(" AND c.idCliente = :idCliente");
+            parametros.put("idCliente", filtro.idCliente());
+        }
+        if (filtro.dni() != null) {
+            jpql.append(" AND c.dni = :dni");
+            parametros.put("dni", filtro.dni());
+        }
+        if (filtro.idUsuarioAtencion() != null) {
+            jpql.append(" AND r.usuarioAtencion.idUsuario = :idUsuarioAtencion");
+            parametros.put("idUsuarioAtencion", filtro.idUsuarioAtencion());
+        }
+
+        String campo = orden == Orden.RETIRO ? "r.fechaLimiteRetiro" : "r.fechaReserva";
+        String sentido = orden == Orden.RETIRO ? "ASC" : "DESC";
+        if (cursorFecha != null && cursorId != null) {
+            // Comparación de filas: PostgreSQL la usa como inicio del rango en el índice (fecha, id)
+            String comparacion = orden == Orden.RETIRO ? ">" : "<";
+            jpql.append(" AND (").append(campo).append(", r.idReserva) ").append(comparacion)
+                .append(" (:cursorFecha, :cursorId)");
+            parametros.put("cursorFecha", cursorFecha);
+            parametros.put("cursorId", cursorId);
+        }
+        jpql.append(" ORDER BY ").append(campo).append(' ').append(sentido)
+            .append(", r.idReserva ").append(sentido);
+
+        TypedQuery<Reserva> query = entityManager.createQuery(jpql.toString(), Reserva.class);
+        parametros.forEach(query::setParameter);
+        query.setHint(HibernateHints.HINT_READ_ONLY, true);
+        query.setMaxResults(limite);
+        return query.getResultList();
+    }
+
+    /**
+     * Filtros de la búsqueda; los null no se aplican. Los rangos de fecha incluyen el inicio y
+     * excluyen el fin.
+     */
+    public record Filtro(Reserva.EstadoReserva estado,
+                         LocalDateTime reservadaDesde, LocalDateTime reservadaHasta,
+                         LocalDateTime retiroDesde, LocalDateTime retiroHasta,
+                         Long idCliente, String dni, Long idUsuarioAtencion) {
+    }
+
+    public enum Orden {
+        /** Más recientes primero (fechaReserva descendente). */
+        RESERVA,
+        /** Retiros más próximos primero (fechaLimiteRetiro ascendente). */
+        RETIRO
+    }
+}
@@ -1,9 +1,14 @@
 package com.proyectouno.demo.repository;
 import com.proyectouno.demo.models.Cliente;
 import com.proyectouno.demo.models.Reserva;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
+import java.util.stream.Stream;
 public interface ReservaRepository extends JpaRepository<Reserva, Long> {
     /**
      * Busca todas las reservas asociadas a un cliente específico.
@@ -20,4 +25,23 @@ public interface ReservaRepository extends JpaRepository<Reserva, Long> {
      * @return La reserva encontrada o null si no existe.
      */
     Reserva findByNumeroReserva(String numeroReserva);
+
+    /**
+     * Todas las reservas con su cliente en una sola consulta (sin una consulta por cliente).
+     * Los detalles se cargan aparte con {@link DetalleReservaRepository#findConProductoByReservaIn}.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT r FROM Reserva r JOIN FETCH r.cliente ORDER BY r.idReserva")
+    List<Reserva> findAllWithCliente();
+
+    /**
+     * Todas las reservas con su cliente, como cursor de solo avance para exportaciones grandes.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Reserva r JOIN FETCH r.cliente ORDER BY r.idReserva")
+    Stream<Reserva> streamAllWithCliente();
 }
\ No newline at end of file
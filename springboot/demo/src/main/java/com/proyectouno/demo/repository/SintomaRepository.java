@@ -0,0 +1,13 @@
+package com.proyectouno.demo.repository;
+
+import com.proyectouno.demo.models.Sintoma;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SintomaRepository extends JpaRepository<Sintoma, Long> {
+
+    Optional<Sintoma> findByNombre(String nombre);
+}
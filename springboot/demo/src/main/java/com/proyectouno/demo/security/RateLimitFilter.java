@@ -0,0 +1,194 @@
+package com.proyectouno.demo.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Limita las solicitudes por cliente (usuario autenticado o, si no hay sesión, IP) y por ruta.
+ *
+ * Cada ruta configurada tiene una cubeta de tokens por cliente: admite ráfagas de hasta
+ * {@code capacidad} solicitudes y se recarga a razón de {@code capacidad} por {@code segundos}.
+ * La cubeta se implementa como GCRA: su estado es un único instante ("hora teórica de llegada")
+ * en un AtomicLong que se actualiza con CAS, sin candados ni objetos nuevos por solicitud.
+ *
+ * Una cubeta cuya hora teórica ya pasó está llena y equivale a no tenerla, así que se puede
+ * borrar sin cambiar el comportamiento; se eliminan en una limpieza periódica.
+ *
+ * Va después de {@link JwtAuthenticationFilter} para poder identificar al usuario. Las
+ * solicitudes rechazadas reciben 429 con Retry-After.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final long LIMPIEZA_CADA_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final AntPathMatcher matcher = new AntPathMatcher();
+    private final List<Regla> reglas = new ArrayList<>();
+    private final boolean habilitado;
+    // Reloj en nanos (System.nanoTime); los tests lo reemplazan para no depender del tiempo real
+    private final LongSupplier reloj;
+
+    private final AtomicLong proximaLimpieza;
+
+    /**
+     * @param rutas reglas separadas por coma con el formato {@code patrón=capacidad/segundos}, p. ej.
+     *              {@code /api/chat-ai/**=20/60}. Se aplica la primera regla cuyo patrón coincide.
+     * @throws IllegalArgumentException si alguna regla no tiene ese formato
+     */
+    @Autowired
+    public RateLimitFilter(@Value("${rate-limit.habilitado:true}") boolean habilitado,
+                           @Value("${rate-limit.rutas:}") String rutas) {
+        this(habilitado, rutas, System::nanoTime);
+    }
+
+    RateLimitFilter(boolean habilitado, String rutas, LongSupplier reloj) {
+        this.habilitado = habilitado;
+        this.reloj = reloj;
+        this.proximaLimpieza = new AtomicLong(reloj.getAsLong() + LIMPIEZA_CADA_NANOS);
+        for (String definicion : rutas.split(",")) {
+            if (!definicion.isBlank()) {
+                reglas.add(parsearRegla(definicion.trim()));
+            }
+        }
+    }
+
+    private static Regla parsearRegla(String definicion) {
+        String error = "Regla inválida en rate-limit.rutas: '" + definicion
+                + "' (se espera patrón=capacidad/segundos, p. ej. /api/chat-ai/**=20/60)";
+        int igual = definicion.lastIndexOf('=');
+        if (igual <= 0) {
+            throw new IllegalArgumentException(error);
+        }
+        String[] limite = definicion.substring(igual + 1).split("/");
+        if (limite.length != 2) {
+            throw new IllegalArgumentException(error);
+        }
+        int capacidad;
+        long segundos;
+        try {
+            capacidad = Integer.parseInt(limite[0].trim());
+            segundos = Long.parseLong(limite[1].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(error, e);
+        }
+        if (capacidad <= 0 || segundos <= 0) {
+            throw new IllegalArgumentException(error + ": capacidad y segundos deben ser mayores que 0");
+        }
+        return new Regla(definicion.substring(0, igual).trim(), capacidad, segundos);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Los preflight de CORS no cuentan
+        return !habilitado || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Regla regla = regla(request.getRequestURI());
+        if (regla == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long ahora = reloj.getAsLong();
+        limpiarSiCorresponde(ahora);
+
+        AtomicLong cubeta = regla.cubetas.computeIfAbsent(cliente(request), k -> new AtomicLong(ahora));
+        long espera = regla.consumir(cubeta, ahora);
+        if (espera > 0) {
+            long segundos = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(espera + 999_999_999L));
+            response.setStatus(429);
+            response.setHeader("Retry-After", Long.toString(segundos));
+            response.setContentType("application/json");
+            response.getWriter().write("{\"error\":\"Demasiadas solicitudes. Intente de nuevo en "
+                    + segundos + " segundos.\"}");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private Regla regla(String uri) {
+        for (Regla regla : reglas) {
+            if (matcher.match(regla.patron, uri)) {
+                return regla;
+            }
+        }
+        return null;
+    }
+
+    private static String cliente(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+            return "u:" + auth.getName();
+        }
+        // Detrás de un proxy, server.forward-headers-strategy=native (application.properties) hace
+        // que esta sea la IP del cliente; sin eso todos los anónimos compartirían la cubeta del proxy
+        return request.getRemoteAddr();
+    }
+
+    private void limpiarSiCorresponde(long ahora) {
+        long proxima = proximaLimpieza.get();
+        // Solo un hilo gana el CAS y hace la limpieza
+        if (ahora - proxima >= 0 && proximaLimpieza.compareAndSet(proxima, ahora + LIMPIEZA_CADA_NANOS)) {
+            for (Regla regla : reglas) {
+                regla.cubetas.values().removeIf(cubeta -> cubeta.get() - ahora <= 0);
+            }
+        }
+    }
+
+    private static final class Regla {
+
+        final String patron;
+        // Tiempo que tarda en recargarse un token
+        final long intervalo;
+        // Cuánto puede adelantarse la hora teórica respecto de ahora (la ráfaga permitida)
+        final long tolerancia;
+        final ConcurrentHashMap<String, AtomicLong> cubetas = new ConcurrentHashMap<>();
+
+        Regla(String patron, int capacidad, long segundos) {
+            this.patron = patron;
+            this.intervalo = TimeUnit.SECONDS.toNanos(segundos) / capacidad;
+            this.tolerancia = intervalo * (capacidad - 1);
+        }
+
+        /**
+         * Consume un token si hay; devuelve 0 si se permitió o cuánto falta (en nanos) para el próximo.
+         */
+        long consumir(AtomicLong cubeta, long ahora) {
+            while (true) {
+                long teorica = cubeta.get();
+                long base = teorica - ahora > 0 ? teorica : ahora;
+                long espera = base - tolerancia - ahora;
+                if (espera > 0) {
+                    return espera;
+                }
+                if (cubeta.compareAndSet(teorica, base + intervalo)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.proyectouno.demo.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -23,9 +25,11 @@ import java.util.Arrays;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtFilter;
+    private final RateLimitFilter rateLimitFilter;
 
-    public SecurityConfig(JwtAuthenticationFilter jwtFilter) {
+    public SecurityConfig(JwtAuthenticationFilter jwtFilter, RateLimitFilter rateLimitFilter) {
         this.jwtFilter = jwtFilter;
+        this.rateLimitFilter = rateLimitFilter;
     }
     
     @Autowired
@@ -46,6 +50,8 @@ public class SecurityConfig {
                     .requestMatchers("/api/chat-ai/**").permitAll() 
                     .requestMatchers("/api/clientes/**").permitAll()
                     .requestMatchers("/api/contacto/**").permitAll()
+                    // Consultar síntomas y recomendaciones es público; modificarlos requiere sesión
+                    .requestMatchers(HttpMethod.GET, "/api/sintomas/**", "/api/recomendaciones/**").permitAll()
                     
 
                     // Solo ADMIN accede a estadísticas
@@ -75,10 +81,21 @@ public class SecurityConfig {
         );
         
         http.addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
+        // Después del JWT para limitar por usuario cuando hay sesión
+        http.addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
 
+    // Al ser @Component, Spring Boot lo registraría también como filtro del servlet, antes de la
+    // cadena de seguridad (sin usuario autenticado); solo debe correr dentro de la cadena
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter filter) {
+        FilterRegistrationBean<RateLimitFilter> registro = new FilterRegistrationBean<>(filter);
+        registro.setEnabled(false);
+        return registro;
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSourceSecuruty() {
         CorsConfiguration configuration = new CorsConfiguration();
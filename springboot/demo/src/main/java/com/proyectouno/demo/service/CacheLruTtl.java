@@ -0,0 +1,163 @@
+package com.proyectouno.demo.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Caché en memoria acotada por tamaño (LRU) y por tiempo de vida (TTL).
+ * Lleva contadores de aciertos, fallos y desalojos para poder dimensionarla.
+ *
+ * @param <K> tipo de la clave
+ * @param <V> tipo del valor
+ */
+public class CacheLruTtl<K, V> {
+
+    private final int maxEntradas;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entrada<V>> mapa;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong desalojos = new AtomicLong();
+    // Se incrementa en cada invalidación (bajo el candado); una carga que empezó antes no se guarda
+    private long generacion;
+
+    public CacheLruTtl(int maxEntradas, long ttlSegundos) {
+        this.maxEntradas = maxEntradas;
+        this.ttlNanos = ttlSegundos * 1_000_000_000L;
+        // accessOrder = true: el orden de iteración es del menos al más recientemente usado
+        this.mapa = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> eldest) {
+                if (size() > CacheLruTtl.this.maxEntradas) {
+                    desalojos.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Devuelve el valor en caché o null si no existe o ya expiró.
+     */
+    public V get(K clave) {
+        synchronized (mapa) {
+            Entrada<V> entrada = mapa.get(clave);
+            if (entrada == null) {
+                fallos.incrementAndGet();
+                return null;
+            }
+            if (entrada.expiraEn - System.nanoTime() <= 0) {
+                mapa.remove(clave);
+                desalojos.incrementAndGet();
+                fallos.incrementAndGet();
+                return null;
+            }
+            aciertos.incrementAndGet();
+            return entrada.valor;
+        }
+    }
+
+    public void put(K clave, V valor) {
+        synchronized (mapa) {
+            mapa.put(clave, new Entrada<>(valor, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    /**
+     * Devuelve el valor en caché o lo calcula con el cargador y lo guarda.
+     * La carga se hace fuera del candado para no bloquear otras lecturas. Si mientras tanto hubo
+     * una invalidación, el valor cargado puede ser anterior a ella: se devuelve pero no se guarda.
+     */
+    public V getOrLoad(K clave, Function<K, V> cargador) {
+        long generacionInicial;
+        synchronized (mapa) {
+            generacionInicial = generacion;
+        }
+        V valor = get(clave);
+        if (valor == null) {
+            valor = cargador.apply(clave);
+            if (valor != null) {
+                synchronized (mapa) {
+                    if (generacion == generacionInicial) {
+                        mapa.put(clave, new Entrada<>(valor, System.nanoTime() + ttlNanos));
+                    }
+                }
+            }
+        }
+        return valor;
+    }
+
+    /**
+     * Devuelve el valor en caché o, si no existe o ya expiró, guarda y devuelve el que crea la
+     * función. Todo ocurre dentro del candado, así que llamadas simultáneas con la misma clave
+     * reciben el mismo valor; la función debe ser barata. Como {@link #put}, renueva el TTL.
+     */
+    public V computeIfAbsent(K clave, Function<K, V> crear) {
+        synchronized (mapa) {
+            long ahora = System.nanoTime();
+            Entrada<V> entrada = mapa.get(clave);
+            V valor;
+            if (entrada != null && entrada.expiraEn - ahora > 0) {
+                aciertos.incrementAndGet();
+                valor = entrada.valor;
+            } else {
+                fallos.incrementAndGet();
+                valor = crear.apply(clave);
+            }
+            mapa.put(clave, new Entrada<>(valor, ahora + ttlNanos));
+            return valor;
+        }
+    }
+
+    public void invalidate(K clave) {
+        synchronized (mapa) {
+            generacion++;
+            mapa.remove(clave);
+        }
+    }
+
+    public void invalidateIf(Predicate<K> condicion) {
+        synchronized (mapa) {
+            generacion++;
+            mapa.keySet().removeIf(condicion);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (mapa) {
+            generacion++;
+            mapa.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (mapa) {
+            return mapa.size();
+        }
+    }
+
+    /**
+     * Contadores de la caché en un mapa listo para serializar a JSON.
+     */
+    public Map<String, Object> estadisticas() {
+        long a = aciertos.get();
+        long f = fallos.get();
+        long total = a + f;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entradas", size());
+        stats.put("maxEntradas", maxEntradas);
+        stats.put("aciertos", a);
+        stats.put("fallos", f);
+        stats.put("desalojos", desalojos.get());
+        stats.put("tasaAciertos", total == 0 ? 0.0 : (double) a / total);
+        return stats;
+    }
+
+    private record Entrada<V>(V valor, long expiraEn) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.proyectouno.demo.service;
+
+import com.proyectouno.demo.DTO.CategoriaDTO;
+import com.proyectouno.demo.DTO.ProductoDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caché en memoria de las vistas del catálogo (productos y categorías).
+ *
+ * Se llena en las lecturas y se invalida con {@link CatalogoCambiadoEvent}, que publican
+ * los controladores de productos, categorías y reservas. El listener corre después del
+ * commit para que una lectura concurrente no vuelva a cachear datos viejos.
+ */
+@Service
+public class CatalogoCache {
+
+    private final CacheLruTtl<Long, ProductoDTO> productos;
+    private final CacheLruTtl<String, List<ProductoDTO>> listasProductos;
+    private final CacheLruTtl<Long, CategoriaDTO> categorias;
+    private final CacheLruTtl<String, List<CategoriaDTO>> listasCategorias;
+
+    public CatalogoCache(@Value("${catalogo.cache.max-productos:10000}") int maxProductos,
+                         @Value("${catalogo.cache.max-listas:200}") int maxListas,
+                         @Value("${catalogo.cache.ttl-segundos:300}") long ttlSegundos) {
+        this.productos = new CacheLruTtl<>(maxProductos, ttlSegundos);
+        this.listasProductos = new CacheLruTtl<>(maxListas, ttlSegundos);
+        this.categorias = new CacheLruTtl<>(1000, ttlSegundos);
+        this.listasCategorias = new CacheLruTtl<>(10, ttlSegundos);
+    }
+
+    public CacheLruTtl<Long, ProductoDTO> productos() { return productos; }
+    public CacheLruTtl<String, List<ProductoDTO>> listasProductos() { return listasProductos; }
+    public CacheLruTtl<Long, CategoriaDTO> categorias() { return categorias; }
+    public CacheLruTtl<String, List<CategoriaDTO>> listasCategorias() { return listasCategorias; }
+
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogoCambiado(CatalogoCambiadoEvent event) {
+        // Cualquier cambio puede mover un producto entre páginas o filtros
+        listasProductos.invalidateAll();
+        if (event.isTodo()) {
+            productos.invalidateAll();
+            categorias.invalidateAll();
+            listasCategorias.invalidateAll();
+        } else {
+            event.getIdsProductos().forEach(productos::invalidate);
+        }
+    }
+
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("productos", productos.estadisticas());
+        stats.put("listasProductos", listasProductos.estadisticas());
+        stats.put("categorias", categorias.estadisticas());
+        stats.put("listasCategorias", listasCategorias.estadisticas());
+        return stats;
+    }
+}
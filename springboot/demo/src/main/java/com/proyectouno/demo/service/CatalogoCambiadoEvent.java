@@ -0,0 +1,37 @@
+package com.proyectouno.demo.service;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Evento publicado cuando cambia el catálogo: alta, edición o baja de productos,
+ * cambios de stock por reservas o lotes, o cambios de categorías.
+ *
+ * Si {@code todo} es true el cambio afecta a todo el catálogo (por ejemplo al
+ * renombrar una categoría) y {@code idsProductos} se ignora.
+ */
+public class CatalogoCambiadoEvent {
+
+    private final Set<Long> idsProductos;
+    private final boolean todo;
+
+    private CatalogoCambiadoEvent(Set<Long> idsProductos, boolean todo) {
+        this.idsProductos = idsProductos;
+        this.todo = todo;
+    }
+
+    public static CatalogoCambiadoEvent productos(Collection<Long> idsProductos) {
+        return new CatalogoCambiadoEvent(Set.copyOf(idsProductos), false);
+    }
+
+    public static CatalogoCambiadoEvent producto(Long idProducto) {
+        return new CatalogoCambiadoEvent(Set.of(idProducto), false);
+    }
+
+    public static CatalogoCambiadoEvent todo() {
+        return new CatalogoCambiadoEvent(Set.of(), true);
+    }
+
+    public Set<Long> getIdsProductos() { return idsProductos; }
+    public boolean isTodo() { return todo; }
+}
@@ -0,0 +1,82 @@
+package com.proyectouno.demo.service;
+
+import com.proyectouno.demo.DTO.ProductoDTO;
+import com.proyectouno.demo.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copia en memoria de todos los productos del catálogo como {@link ProductoDTO}.
+ *
+ * Se carga al iniciar la aplicación y se mantiene al día con {@link CatalogoCambiadoEvent}:
+ * solo se vuelven a leer los productos que cambiaron. Tras cada recarga publica un
+ * {@link CatalogoRecargadoEvent} para que los índices en memoria se actualicen.
+ */
+@Service
+public class CatalogoEnMemoria {
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final Map<Long, ProductoDTO> productos = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarInicial() {
+        recargarTodo();
+    }
+
+    @Order(1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogoCambiado(CatalogoCambiadoEvent event) {
+        if (event.isTodo()) {
+            recargarTodo();
+        } else if (!event.getIdsProductos().isEmpty()) {
+            recargar(event.getIdsProductos());
+        }
+    }
+
+    public synchronized void recargarTodo() {
+        List<ProductoDTO> todos = productoRepository.findAllDTO();
+        productos.clear();
+        todos.forEach(dto -> productos.put(dto.getIdProducto(), dto));
+        eventPublisher.publishEvent(new CatalogoRecargadoEvent(todos, Set.of(), true));
+    }
+
+    public synchronized void recargar(Collection<Long> ids) {
+        List<ProductoDTO> actualizados = productoRepository.findAllDTOByIdIn(ids);
+        Set<Long> eliminados = new HashSet<>(ids);
+        for (ProductoDTO dto : actualizados) {
+            eliminados.remove(dto.getIdProducto());
+            productos.put(dto.getIdProducto(), dto);
+        }
+        eliminados.forEach(productos::remove);
+        eventPublisher.publishEvent(new CatalogoRecargadoEvent(actualizados, eliminados, false));
+    }
+
+    public ProductoDTO get(Long idProducto) {
+        return productos.get(idProducto);
+    }
+
+    public Collection<ProductoDTO> todos() {
+        return productos.values();
+    }
+
+    public int size() {
+        return productos.size();
+    }
+}
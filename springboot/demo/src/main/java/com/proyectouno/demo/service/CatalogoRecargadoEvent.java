@@ -0,0 +1,31 @@
+package com.proyectouno.demo.service;
+
+import com.proyectouno.demo.DTO.ProductoDTO;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Evento publicado por {@link CatalogoEnMemoria} después de recargar productos desde la base
+ * de datos. Los índices en memoria (búsqueda, sugerencias, etc.) lo usan para actualizarse
+ * sin volver a consultar la base de datos.
+ *
+ * Si {@code completo} es true, {@code actualizados} contiene todo el catálogo y los índices
+ * deben reconstruirse desde cero.
+ */
+public class CatalogoRecargadoEvent {
+
+    private final List<ProductoDTO> actualizados;
+    private final Set<Long> eliminados;
+    private final boolean completo;
+
+    public CatalogoRecargadoEvent(List<ProductoDTO> actualizados, Set<Long> eliminados, boolean completo) {
+        this.actualizados = actualizados;
+        this.eliminados = eliminados;
+        this.completo = completo;
+    }
+
+    public List<ProductoDTO> getActualizados() { return actualizados; }
+    public Set<Long> getEliminados() { return eliminados; }
+    public boolean isCompleto() { return completo; }
+}
@@ -0,0 +1,84 @@
+package com.proyectouno.demo.service;
+
+import com.proyectouno.demo.repository.CategoriaRepository;
+import com.proyectouno.demo.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versión del catálogo para las lecturas condicionales (ETag / Last-Modified).
+ *
+ * Cada {@link CatalogoCambiadoEvent} incrementa la versión y actualiza la fecha de última
+ * modificación. La ETag incluye el instante de arranque para que un reinicio nunca reutilice
+ * una ETag que ya tenga un cliente con otro contenido.
+ */
+@Service
+public class CatalogoVersion {
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    private final long arranque = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong(1);
+    private volatile long ultimaModificacion = truncarASegundos(System.currentTimeMillis());
+
+    /**
+     * Toma como última modificación la fecha más reciente de productos y categorías.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarUltimaModificacion() {
+        LocalDateTime productos = productoRepository.findUltimaModificacion();
+        LocalDateTime categorias = categoriaRepository.findUltimaModificacion();
+        LocalDateTime ultima = productos == null ? categorias
+                : categorias == null || productos.isAfter(categorias) ? productos : categorias;
+        if (ultima != null) {
+            ultimaModificacion = truncarASegundos(ultima.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+
+    // Se ejecuta al final, cuando las cachés ya se invalidaron: así una ETag nueva nunca
+    // acompaña a datos viejos
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogoCambiado(CatalogoCambiadoEvent event) {
+        version.incrementAndGet();
+        // Last-Modified tiene resolución de segundos; nunca debe retroceder
+        ultimaModificacion = Math.max(ultimaModificacion,
+                truncarASegundos(System.currentTimeMillis()));
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public long getUltimaModificacion() {
+        return ultimaModificacion;
+    }
+
+    /**
+     * ETag fuerte para la versión actual del catálogo.
+     *
+     * @param variante lo que distingue una representación de otra en la misma versión
+     *                 (ruta, parámetros, usuario si la respuesta lo incluye)
+     */
+    public String etag(String variante) {
+        return "\"" + Long.toHexString(arranque) + "-" + version.get() + "-"
+                + Integer.toHexString(variante.hashCode()) + "\"";
+    }
+
+    private static long truncarASegundos(long millis) {
+        return millis / 1000 * 1000;
+    }
+}
@@ -0,0 +1,148 @@
+package com.proyectouno.demo.service;
+
+import com.proyectouno.demo.DTO.ProductoDTO;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Arma el system prompt del chat a partir de fragmentos ya renderizados por producto.
+ *
+ * Cada producto se convierte a texto una sola vez y el fragmento se guarda; solo se vuelve a
+ * renderizar cuando {@link CatalogoRecargadoEvent} informa que el producto cambió (edición,
+ * lotes o stock por reservas). Las partes fijas del prompt son constantes, así que armar un
+ * prompt es concatenar cadenas existentes en un StringBuilder del tamaño justo.
+ *
+ * Lleva métricas de cuántos fragmentos se renderizaron y del tamaño de los prompts armados.
+ */
+@Service
+public class ChatPromptCache {
+
+    // Las descripciones largas se recortan para acotar el tamaño del prompt
+    static final int MAX_LARGO_DESCRIPCION = 300;
+
+    private static final String ENCABEZADO =
+            "Eres un asistente virtual especializado de Farmacia María Rosa. " +
+            "Tu función es ayudar a los clientes con información sobre productos farmacéuticos, " +
+            "recomendaciones generales y consultas sobre disponibilidad.\n\n" +
+            "INSTRUCCIONES IMPORTANTES:\n" +
+            "1. SOLO responde preguntas relacionadas con medicamentos, productos de salud, y temas farmacéuticos\n" +
+            "2. NO proporciones diagnósticos médicos\n" +
+            "3. SIEMPRE recomienda consultar con un médico para problemas de salud específicos\n" +
+            "4. Usa la siguiente información de productos para responder sobre disponibilidad y precios; " +
+            "si preguntan por un producto que no aparece, sugiere consultar en la farmacia\n" +
+            "5. Sé amable, profesional y útil\n" +
+            "6. Si un producto requiere receta, infórmalo claramente\n" +
+            "7. Si no sabes algo, reconócelo y sugiere consultar en la farmacia\n\n";
+
+    private static final String TITULO_PRODUCTOS = "PRODUCTOS DE LA FARMACIA RELACIONADOS CON LA CONSULTA:\n\n";
+    private static final String SIN_PRODUCTOS = "No se encontraron productos del catálogo relacionados con la consulta.\n\n";
+    private static final String PIE =
+            "\nRecuerda: Solo información farmacéutica. Para emergencias médicas, deriva inmediatamente al médico.";
+
+    private final Map<Long, String> fragmentos = new ConcurrentHashMap<>();
+
+    private final AtomicLong fragmentosRenderizados = new AtomicLong();
+    private final AtomicLong recargasCompletas = new AtomicLong();
+    private final AtomicLong promptsArmados = new AtomicLong();
+    private final AtomicLong caracteresTotales = new AtomicLong();
+    private final AtomicLong caracteresMaximo = new AtomicLong();
+    private volatile int caracteresUltimo;
+
+    @EventListener
+    public void onCatalogoRecargado(CatalogoRecargadoEvent event) {
+        if (event.isCompleto()) {
+            fragmentos.clear();
+            recargasCompletas.incrementAndGet();
+        }
+        event.getEliminados().forEach(fragmentos::remove);
+        for (ProductoDTO producto : event.getActualizados()) {
+            fragmentos.put(producto.getIdProducto(), renderizar(producto));
+        }
+    }
+
+    /**
+     * Arma el system prompt con los productos dados (en ese orden) y un contexto adicional
+     * opcional (por ejemplo, los síntomas detectados).
+     */
+    public String armarPrompt(List<ProductoDTO> productos, String contextoAdicional) {
+        String[] partes = new String[productos.size()];
+        int largo = ENCABEZADO.length() + TITULO_PRODUCTOS.length() + PIE.length() + contextoAdicional.length();
+        for (int i = 0; i < partes.length; i++) {
+            partes[i] = fragmento(productos.get(i));
+            largo += partes[i].length();
+        }
+
+        StringBuilder prompt = new StringBuilder(largo);
+        prompt.append(ENCABEZADO);
+        if (partes.length == 0) {
+            prompt.append(SIN_PRODUCTOS);
+        } else {
+            prompt.append(TITULO_PRODUCTOS);
+            for (String parte : partes) {
+                prompt.append(parte);
+            }
+        }
+        prompt.append(contextoAdicional).append(PIE);
+
+        registrarTamanio(prompt.length());
+        return prompt.toString();
+    }
+
+    public Map<String, Object> estadisticas() {
+        long armados = promptsArmados.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("fragmentosEnCache", fragmentos.size());
+        stats.put("fragmentosRenderizados", fragmentosRenderizados.get());
+        stats.put("recargasCompletas", recargasCompletas.get());
+        stats.put("promptsArmados", armados);
+        stats.put("caracteresUltimoPrompt", caracteresUltimo);
+        stats.put("caracteresPromedio", armados == 0 ? 0 : caracteresTotales.get() / armados);
+        stats.put("caracteresMaximo", caracteresMaximo.get());
+        return stats;
+    }
+
+    private String fragmento(ProductoDTO producto) {
+        // Normalmente ya está; si no (p. ej. antes de la carga inicial) se renderiza y se guarda
+        return fragmentos.computeIfAbsent(producto.getIdProducto(), id -> renderizar(producto));
+    }
+
+    private void registrarTamanio(int caracteres) {
+        promptsArmados.incrementAndGet();
+        caracteresTotales.addAndGet(caracteres);
+        caracteresMaximo.accumulateAndGet(caracteres, Math::max);
+        caracteresUltimo = caracteres;
+    }
+
+    private String renderizar(ProductoDTO producto) {
+        fragmentosRenderizados.incrementAndGet();
+        StringBuilder context = new StringBuilder();
+        context.append("• ").append(producto.getNombre())
+               .append(" - Precio: S/ ").append(producto.getPrecio())
+               .append(" - Stock: ").append(producto.getStockActual())
+               .append(" - Categoría: ").append(producto.getCategoriaNombre())
+               .append(" - Requiere receta: ").append(Boolean.TRUE.equals(producto.getRequiereReceta()) ? "Sí" : "No")
+               .append(" - Controlado: ").append(Boolean.TRUE.equals(producto.getEsControlado()) ? "Sí" : "No")
+               .append("\n");
+
+        if (producto.getDescripcion() != null && !producto.getDescripcion().isEmpty()) {
+            String descripcion = producto.getDescripcion();
+            if (descripcion.length() > MAX_LARGO_DESCRIPCION) {
+                descripcion = descripcion.substring(0, MAX_LARGO_DESCRIPCION) + "…";
+            }
+            context.append("  Descripción: ").append(descripcion).append("\n");
+        }
+        if (producto.getLaboratorio() != null && !producto.getLaboratorio().isEmpty()) {
+            context.append("  Laboratorio: ").append(producto.getLaboratorio()).append("\n");
+        }
+        if (producto.getPrincipioActivo() != null && !producto.getPrincipioActivo().isEmpty()) {
+            context.append("  Principio activo: ").append(producto.getPrincipioActivo()).append("\n");
+        }
+        return context.append("\n").toString();
+    }
+}
@@ -0,0 +1,89 @@
+package com.proyectouno.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de respuestas del LLM para preguntas repetidas ("¿tienen paracetamol?").
+ *
+ * La clave tiene dos partes:
+ * <ul>
+ *   <li>La pregunta normalizada: minúsculas, sin tildes ni signos y sin palabras vacías, así
+ *       "¿Tienen paracetamol?" y "tienen paracetamol" comparten entrada.</li>
+ *   <li>Una huella del system prompt armado para esa pregunta. El prompt contiene precio y stock
+ *       de los productos relacionados y las recomendaciones por síntoma, de modo que si alguno de
+ *       esos productos cambia la huella cambia y la respuesta vieja ya no se usa. Es como una
+ *       versión del catálogo, pero limitada a los productos que importan para la pregunta.</li>
+ * </ul>
+ * Las entradas que quedan sin uso salen por LRU o TTL; una recarga completa del catálogo vacía la caché.
+ */
+@Service
+public class ChatRespuestaCache {
+
+    private final CacheLruTtl<String, String> respuestas;
+
+    private final AtomicLong noCacheables = new AtomicLong();
+    private final AtomicLong invalidacionesCompletas = new AtomicLong();
+
+    public ChatRespuestaCache(@Value("${chat.cache.max-respuestas:1000}") int maxRespuestas,
+                              @Value("${chat.cache.ttl-segundos:3600}") long ttlSegundos) {
+        this.respuestas = new CacheLruTtl<>(maxRespuestas, ttlSegundos);
+    }
+
+    @EventListener
+    public void onCatalogoRecargado(CatalogoRecargadoEvent event) {
+        if (event.isCompleto()) {
+            respuestas.invalidateAll();
+            invalidacionesCompletas.incrementAndGet();
+        }
+    }
+
+    /**
+     * Clave de caché para la pregunta y el prompt con que se respondería, o null si la pregunta
+     * no tiene palabras significativas (no se cachea).
+     */
+    public String clave(String mensaje, String systemPrompt) {
+        String pregunta = String.join(" ", TextoNormalizador.palabras(mensaje));
+        if (pregunta.isEmpty()) {
+            noCacheables.incrementAndGet();
+            return null;
+        }
+        return pregunta + "|" + Long.toHexString(huella(systemPrompt));
+    }
+
+    /**
+     * Respuesta guardada para la clave, o null. Con clave null siempre devuelve null.
+     */
+    public String get(String clave) {
+        return clave == null ? null : respuestas.get(clave);
+    }
+
+    public void guardar(String clave, String respuesta) {
+        if (clave != null && respuesta != null && !respuesta.isBlank()) {
+            respuestas.put(clave, respuesta);
+        }
+    }
+
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> stats = respuestas.estadisticas();
+        // Cada acierto es una llamada al LLM que no se hizo
+        stats.put("llamadasAhorradas", stats.get("aciertos"));
+        stats.put("noCacheables", noCacheables.get());
+        stats.put("invalidacionesCompletas", invalidacionesCompletas.get());
+        return stats;
+    }
+
+    // FNV-1a de 64 bits sobre el texto del prompt
+    private static long huella(String texto) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < texto.length(); i++) {
+            h ^= texto.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
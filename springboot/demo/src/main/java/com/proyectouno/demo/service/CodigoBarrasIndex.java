@@ -0,0 +1,252 @@
+package com.proyectouno.demo.service;
+
+import com.proyectouno.demo.DTO.ProductoDTO;
+import com.proyectouno.demo.models.Producto;
+import com.proyectouno.demo.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Mapa en memoria código de barras → (id, nombre, precio, stock) para el escaneo en caja.
+ *
+ * Los códigos numéricos (EAN/UPC, hasta 15 dígitos) se guardan como {@code long} en una tabla
+ * de direccionamiento abierto, sin objetos clave ni boxing; las lecturas no toman candados.
+ * Los códigos con letras van a un {@link ConcurrentHashMap} aparte.
+ *
+ * Se mantiene al día con {@link CatalogoRecargadoEvent} (altas, ediciones y cambios de stock
+ * por reservas). Si un código no está, se consulta la base de datos por el índice único de
+ * codigo_barras y se agrega al mapa, salvo que una recarga haya llegado durante la consulta.
+ */
+@Service
+public class CodigoBarrasIndex {
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    private final TablaLong numericos = new TablaLong();
+    private final Map<String, Entrada> alfanumericos = new ConcurrentHashMap<>();
+    // idProducto -> código indexado, para quitar el código viejo si cambia
+    private final Map<Long, String> codigoPorProducto = new HashMap<>();
+    // Se incrementa con cada recarga; una lectura de la BD que empezó antes no se agrega al mapa
+    private volatile long generacion;
+
+    @EventListener
+    public synchronized void onCatalogoRecargado(CatalogoRecargadoEvent event) {
+        generacion++;
+        if (event.isCompleto()) {
+            numericos.limpiar();
+            alfanumericos.clear();
+            codigoPorProducto.clear();
+        }
+        event.getEliminados().forEach(this::quitar);
+        for (ProductoDTO producto : event.getActualizados()) {
+            quitar(producto.getIdProducto());
+            if (producto.getCodigoBarras() != null && !producto.getCodigoBarras().isBlank()) {
+                poner(new Entrada(producto.getIdProducto(), producto.getCodigoBarras().trim(),
+                        producto.getNombre(), producto.getPrecio(), producto.getStockActual()));
+            }
+        }
+    }
+
+    /**
+     * Busca un producto por código de barras: primero en memoria y, si no está, en la base de datos.
+     *
+     * @return la entrada o null si ningún producto tiene ese código
+     */
+    public Entrada buscar(String codigo) {
+        String limpio = codigo.trim();
+        long numero = aNumero(limpio);
+        Entrada entrada = numero >= 0 ? numericos.get(numero) : alfanumericos.get(limpio);
+        if (entrada != null) {
+            return entrada;
+        }
+        long generacionInicial = generacion;
+        Producto producto = productoRepository.findByCodigoBarras(limpio).orElse(null);
+        if (producto == null) {
+            return null;
+        }
+        entrada = new Entrada(producto.getIdProducto(), limpio, producto.getNombre(),
+                producto.getPrecio(), producto.getStockActual());
+        synchronized (this) {
+            // Si hubo una recarga durante la consulta la entrada puede ser vieja: se devuelve sin guardarla
+            if (generacion == generacionInicial) {
+                quitar(producto.getIdProducto());
+                poner(entrada);
+            }
+        }
+        return entrada;
+    }
+
+    private void poner(Entrada entrada) {
+        long numero = aNumero(entrada.codigoBarras());
+        if (numero >= 0) {
+            numericos.put(numero, entrada);
+        } else {
+            alfanumericos.put(entrada.codigoBarras(), entrada);
+        }
+        codigoPorProducto.put(entrada.idProducto(), entrada.codigoBarras());
+    }
+
+    private void quitar(Long idProducto) {
+        String codigo = codigoPorProducto.remove(idProducto);
+        if (codigo == null) {
+            return;
+        }
+        long numero = aNumero(codigo);
+        if (numero >= 0) {
+            numericos.remove(numero);
+        } else {
+            alfanumericos.remove(codigo);
+        }
+    }
+
+    /**
+     * Convierte el código a long si son solo dígitos (máximo 15, suficiente para EAN/UPC/GTIN-14).
+     * El largo va en los bits altos para que los ceros a la izquierda sigan siendo significativos
+     * ("0123" y "123" son códigos distintos).
+     *
+     * @return la clave o -1 si el código no es numérico
+     */
+    private static long aNumero(String codigo) {
+        int largo = codigo.length();
+        if (largo == 0 || largo > 15) {
+            return -1;
+        }
+        long valor = 0;
+        for (int i = 0; i < largo; i++) {
+            char c = codigo.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            valor = valor * 10 + (c - '0');
+        }
+        return ((long) largo << 56) | valor;
+    }
+
+    /**
+     * Datos mínimos para cobrar un producto escaneado.
+     */
+    public record Entrada(Long idProducto, String codigoBarras, String nombre, BigDecimal precio, Integer stockActual) {
+    }
+
+    /**
+     * Tabla hash long → Entrada con sondeo lineal. Las escrituras se serializan con el candado
+     * del índice; las lecturas son libres de candados gracias a {@link AtomicReferenceArray}
+     * y a que la tabla se reemplaza entera (referencia volátil) al crecer.
+     */
+    private static final class TablaLong {
+
+        private static final Celda BORRADO = new Celda(-1L, null);
+
+        private volatile AtomicReferenceArray<Celda> tabla = new AtomicReferenceArray<>(1024);
+        // Celdas no nulas (incluye las marcadas como borradas)
+        private int ocupados;
+
+        Entrada get(long clave) {
+            AtomicReferenceArray<Celda> t = tabla;
+            int mascara = t.length() - 1;
+            for (int i = indice(clave, mascara); ; i = (i + 1) & mascara) {
+                Celda c = t.get(i);
+                if (c == null) {
+                    return null;
+                }
+                if (c != BORRADO && c.clave == clave) {
+                    return c.entrada;
+                }
+            }
+        }
+
+        void put(long clave, Entrada entrada) {
+            if ((ocupados + 1) * 2 > tabla.length()) {
+                redimensionar();
+            }
+            AtomicReferenceArray<Celda> t = tabla;
+            int mascara = t.length() - 1;
+            int libre = -1;
+            for (int i = indice(clave, mascara); ; i = (i + 1) & mascara) {
+                Celda c = t.get(i);
+                if (c == null) {
+                    if (libre < 0) {
+                        libre = i;
+                        ocupados++;
+                    }
+                    t.set(libre, new Celda(clave, entrada));
+                    return;
+                }
+                if (c == BORRADO) {
+                    if (libre < 0) {
+                        libre = i;
+                    }
+                } else if (c.clave == clave) {
+                    t.set(i, new Celda(clave, entrada));
+                    return;
+                }
+            }
+        }
+
+        void remove(long clave) {
+            AtomicReferenceArray<Celda> t = tabla;
+            int mascara = t.length() - 1;
+            for (int i = indice(clave, mascara); ; i = (i + 1) & mascara) {
+                Celda c = t.get(i);
+                if (c == null) {
+                    return;
+                }
+                if (c != BORRADO && c.clave == clave) {
+                    t.set(i, BORRADO);
+                    return;
+                }
+            }
+        }
+
+        void limpiar() {
+            tabla = new AtomicReferenceArray<>(1024);
+            ocupados = 0;
+        }
+
+        // Reconstruye la tabla sin marcas de borrado, creciendo hasta quedar a un 25% de carga
+        private void redimensionar() {
+            AtomicReferenceArray<Celda> vieja = tabla;
+            int vivos = 0;
+            for (int i = 0; i < vieja.length(); i++) {
+                Celda c = vieja.get(i);
+                if (c != null && c != BORRADO) {
+                    vivos++;
+                }
+            }
+            int capacidad = vieja.length();
+            while ((vivos + 1) * 4 > capacidad) {
+                capacidad *= 2;
+            }
+            AtomicReferenceArray<Celda> nueva = new AtomicReferenceArray<>(capacidad);
+            int mascara = capacidad - 1;
+            for (int i = 0; i < vieja.length(); i++) {
+                Celda c = vieja.get(i);
+                if (c != null && c != BORRADO) {
+                    int j = indice(c.clave, mascara);
+                    while (nueva.get(j) != null) {
+                        j = (j + 1) & mascara;
+                    }
+                    nueva.set(j, c);
+                }
+            }
+            ocupados = vivos;
+            tabla = nueva;
+        }
+
+        private static int indice(long clave, int mascara) {
+            long h = clave * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mascara;
+        }
+
+        private record Celda(long clave, Entrada entrada) {
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.proyectouno.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proyectouno.demo.models.Sintoma;
+import com.proyectouno.demo.repository.SintomaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Detecta síntomas en texto libre ("me duele la cabeza y tengo fiebre") en una sola pasada.
+ *
+ * Todas las palabras clave de los síntomas (su {@code palabrasClave} y su nombre) se compilan en un
+ * autómata de Aho-Corasick. Tanto las palabras clave como el texto se llevan a la misma forma:
+ * sin tildes ni mayúsculas, sin palabras vacías y con cada palabra reducida a su raíz, así
+ * "dolor de cabeza" coincide con "dolores en la cabeza". Los patrones se delimitan con espacios
+ * para que solo coincidan palabras completas.
+ *
+ * El autómata es inmutable; cuando cambian los síntomas se construye uno nuevo y se publica
+ * reemplazando la referencia, de modo que las búsquedas en curso nunca ven uno a medio armar.
+ */
+@Service
+public class DetectorSintomas {
+
+    // ' ' + 'a'..'z' + '0'..'9'
+    private static final int SIMBOLOS = 37;
+
+    @Autowired
+    private SintomaRepository sintomaRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private volatile Automata automata = Automata.construir(List.of());
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarInicial() {
+        reconstruir();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSintomasCambiados(SintomasCambiadosEvent event) {
+        reconstruir();
+    }
+
+    public synchronized void reconstruir() {
+        List<Patron> patrones = new ArrayList<>();
+        for (Sintoma sintoma : sintomaRepository.findAll()) {
+            Set<String> palabras = new LinkedHashSet<>();
+            palabras.add(sintoma.getNombre());
+            palabras.addAll(palabrasClave(sintoma));
+            for (String palabra : palabras) {
+                String forma = formaCanonica(palabra);
+                if (!forma.isEmpty()) {
+                    patrones.add(new Patron(sintoma.getIdSintoma(), sintoma.getNombre(), palabra, forma));
+                }
+            }
+        }
+        automata = Automata.construir(patrones);
+    }
+
+    /**
+     * Devuelve los síntomas mencionados en el texto, en el orden en que aparecen, con las
+     * palabras clave que coincidieron.
+     */
+    public List<Coincidencia> detectar(String texto) {
+        Automata a = automata;
+        String forma = " " + formaCanonica(texto) + " ";
+        Map<Long, Coincidencia> encontrados = new LinkedHashMap<>();
+        int estado = 0;
+        for (int i = 0; i < forma.length(); i++) {
+            estado = a.transiciones[estado][simbolo(forma.charAt(i))];
+            for (int p : a.salidas[estado]) {
+                Patron patron = a.patrones.get(p);
+                Coincidencia c = encontrados.computeIfAbsent(patron.idSintoma(),
+                        id -> new Coincidencia(id, patron.nombreSintoma(), new ArrayList<>()));
+                if (!c.palabras().contains(patron.palabra())) {
+                    c.palabras().add(patron.palabra());
+                }
+            }
+        }
+        return new ArrayList<>(encontrados.values());
+    }
+
+    public int cantidadPatrones() {
+        return automata.patrones.size();
+    }
+
+    private List<String> palabrasClave(Sintoma sintoma) {
+        if (sintoma.getPalabrasClave() == null || sintoma.getPalabrasClave().isBlank()) {
+            return List.of();
+        }
+        try {
+            return objectMapper.readValue(sintoma.getPalabrasClave(), new TypeReference<List<String>>() {});
+        } catch (JsonProcessingException e) {
+            return List.of();
+        }
+    }
+
+    private static String formaCanonica(String texto) {
+        return String.join(" ", TextoNormalizador.terminos(texto));
+    }
+
+    private static int simbolo(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return 1 + (c - 'a');
+        }
+        if (c >= '0' && c <= '9') {
+            return 27 + (c - '0');
+        }
+        return 0;
+    }
+
+    private record Patron(Long idSintoma, String nombreSintoma, String palabra, String forma) {
+    }
+
+    /**
+     * Síntoma encontrado en el texto y las palabras clave (tal como están en el síntoma) que lo activaron.
+     */
+    public record Coincidencia(Long idSintoma, String nombre, List<String> palabras) {
+    }
+
+    /**
+     * Autómata de Aho-Corasick ya completado como tabla de transiciones (las fallas se resuelven al
+     * construirlo), así que la búsqueda es una transición por carácter.
+     */
+    private static final class Automata {
+
+        private static final int[] SIN_SALIDAS = new int[0];
+
+        final List<Patron> patrones;
+        final int[][] transiciones;
+        // nodo -> patrones que terminan en él (incluye los heredados por enlaces de falla)
+        final int[][] salidas;
+
+        private Automata(List<Patron> patrones, int[][] transiciones, int[][] salidas) {
+            this.patrones = patrones;
+            this.transiciones = transiciones;
+            this.salidas = salidas;
+        }
+
+        static Automata construir(List<Patron> patrones) {
+            List<int[]> trie = new ArrayList<>();
+            List<int[]> terminales = new ArrayList<>();
+            trie.add(nuevoNodo());
+            terminales.add(SIN_SALIDAS);
+
+            for (int p = 0; p < patrones.size(); p++) {
+                String forma = " " + patrones.get(p).forma() + " ";
+                int nodo = 0;
+                for (int i = 0; i < forma.length(); i++) {
+                    int s = simbolo(forma.charAt(i));
+                    if (trie.get(nodo)[s] < 0) {
+                        trie.get(nodo)[s] = trie.size();
+                        trie.add(nuevoNodo());
+                        terminales.add(SIN_SALIDAS);
+                    }
+                    nodo = trie.get(nodo)[s];
+                }
+                terminales.set(nodo, agregar(terminales.get(nodo), p));
+            }
+
+            int[][] transiciones = trie.toArray(new int[0][]);
+            int[][] salidas = terminales.toArray(new int[0][]);
+            int[] falla = new int[transiciones.length];
+            ArrayDeque<Integer> cola = new ArrayDeque<>();
+            for (int s = 0; s < SIMBOLOS; s++) {
+                int hijo = transiciones[0][s];
+                if (hijo < 0) {
+                    transiciones[0][s] = 0;
+                } else {
+                    falla[hijo] = 0;
+                    cola.add(hijo);
+                }
+            }
+            // En orden BFS la falla de cada nodo ya está completa cuando se lo procesa
+            while (!cola.isEmpty()) {
+                int nodo = cola.poll();
+                salidas[nodo] = unir(salidas[nodo], salidas[falla[nodo]]);
+                for (int s = 0; s < SIMBOLOS; s++) {
+                    int hijo = transiciones[nodo][s];
+                    if (hijo < 0) {
+                        transiciones[nodo][s] = transiciones[falla[nodo]][s];
+                    } else {
+                        falla[hijo] = transiciones[falla[nodo]][s];
+                        cola.add(hijo);
+                    }
+                }
+            }
+            return new Automata(List.copyOf(patrones), transiciones, salidas);
+        }
+
+        private static int[] nuevoNodo() {
+            int[] nodo = new int[SIMBOLOS];
+            Arrays.fill(nodo, -1);
+            return nodo;
+        }
+
+        private static int[] agregar(int[] arreglo, int valor) {
+            int[] nuevo = Arrays.copyOf(arreglo, arreglo.length + 1);
+            nuevo[arreglo.length] = valor;
+            return nuevo;
+        }
+
+        private static int[] unir(int[] a, int[] b) {
+            if (b.length == 0) {
+                return a;
+            }
+            if (a.length == 0) {
+                return b;
+            }
+            int[] nuevo = Arrays.copyOf(a, a.length + b.length);
+            System.arraycopy(b, 0, nuevo, a.length, b.length);
+            return nuevo;
+        }
+    }
+}
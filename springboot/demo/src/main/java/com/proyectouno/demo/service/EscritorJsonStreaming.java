@@ -0,0 +1,93 @@
+package com.proyectouno.demo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Escribe listados grandes como un arreglo JSON elemento por elemento, sin armar la lista en memoria.
+ *
+ * La consulta se recorre como un {@link Stream} de Hibernate (cursor de solo avance con fetch size
+ * acotado, ver las consultas {@code stream...} de los repositorios) dentro de una transacción de
+ * solo lectura propia, porque el cuerpo se escribe en otro hilo después de que el controlador
+ * retorna. Cada {@value #FILAS_POR_LOTE} elementos se vacía el {@link JsonGenerator} y se limpia
+ * el contexto de persistencia, así el heap queda plano sin importar cuántas filas haya.
+ */
+@Service
+public class EscritorJsonStreaming {
+
+    static final int FILAS_POR_LOTE = 500;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * @param consulta abre el stream de filas (se invoca ya dentro de la transacción)
+     * @param mapeo    convierte cada fila en el objeto a serializar
+     */
+    public <T> ResponseEntity<StreamingResponseBody> responder(Supplier<Stream<T>> consulta, Function<T, ?> mapeo) {
+        return responderPorLotes(consulta, lote -> lote.stream().map(mapeo).collect(Collectors.toList()));
+    }
+
+    /**
+     * Igual que {@link #responder}, pero convierte las filas de a lotes de {@value #FILAS_POR_LOTE},
+     * para que la conversión pueda cargar lo que necesita de todo el lote en una consulta en lugar
+     * de una por fila.
+     *
+     * @param mapeoLote convierte un lote de filas en los objetos a serializar, en el mismo orden
+     */
+    public <T> ResponseEntity<StreamingResponseBody> responderPorLotes(Supplier<Stream<T>> consulta,
+                                                                       Function<List<T>, List<?>> mapeoLote) {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        transaccion.setReadOnly(true);
+        StreamingResponseBody cuerpo = salida -> transaccion.executeWithoutResult(estado -> {
+            try (Stream<T> filas = consulta.get();
+                 JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+                // El contenedor de servlets es quien cierra la respuesta
+                generador.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+                generador.writeStartArray();
+                List<T> lote = new ArrayList<>(FILAS_POR_LOTE);
+                Iterator<T> it = filas.iterator();
+                while (it.hasNext()) {
+                    lote.add(it.next());
+                    if (lote.size() == FILAS_POR_LOTE || !it.hasNext()) {
+                        for (Object elemento : mapeoLote.apply(lote)) {
+                            generador.writeObject(elemento);
+                        }
+                        lote.clear();
+                        generador.flush();
+                        entityManager.clear();
+                    }
+                }
+                generador.writeEndArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(cuerpo);
+    }
+}
@@ -0,0 +1,182 @@
+package com.proyectouno.demo.service;
+
+import com.proyectouno.demo.DTO.ProductoDTO;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Conteos de facetas del catálogo calculados con mapas de bits en memoria.
+ *
+ * Por cada valor de cada faceta (categoría, requiere receta, controlado, laboratorio y forma
+ * farmacéutica) se guarda un {@link BitSet} indexado por idProducto. Filtrar es intersecar bits
+ * y contar es {@link BitSet#cardinality()}, sin GROUP BY en la base de datos.
+ *
+ * Los filtros se combinan con OR dentro de una faceta y con AND entre facetas. El conteo de cada
+ * faceta se calcula aplicando solo los filtros de las demás, para que el usuario vea cuántos
+ * productos obtendría al cambiar esa selección.
+ */
+@Service
+public class FacetaIndex {
+
+    public static final String CATEGORIA = "categoria";
+    public static final String REQUIERE_RECETA = "requiereReceta";
+    public static final String ES_CONTROLADO = "esControlado";
+    public static final String LABORATORIO = "laboratorio";
+    public static final String FORMA_FARMACEUTICA = "formaFarmaceutica";
+
+    private static final Map<String, Function<ProductoDTO, Object>> FACETAS = new LinkedHashMap<>();
+
+    static {
+        FACETAS.put(CATEGORIA, ProductoDTO::getIdCategoria);
+        FACETAS.put(REQUIERE_RECETA, ProductoDTO::getRequiereReceta);
+        FACETAS.put(ES_CONTROLADO, ProductoDTO::getEsControlado);
+        FACETAS.put(LABORATORIO, ProductoDTO::getLaboratorio);
+        FACETAS.put(FORMA_FARMACEUTICA, ProductoDTO::getFormaFarmaceutica);
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // faceta -> valor -> productos con ese valor
+    private final Map<String, Map<String, BitSet>> bitmaps = new HashMap<>();
+    // idProducto -> (faceta -> valor) indexado, para poder quitarlo
+    private final Map<Long, Map<String, String>> valoresPorProducto = new HashMap<>();
+    private final BitSet todos = new BitSet();
+
+    public FacetaIndex() {
+        FACETAS.keySet().forEach(f -> bitmaps.put(f, new HashMap<>()));
+    }
+
+    @EventListener
+    public void onCatalogoRecargado(CatalogoRecargadoEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.isCompleto()) {
+                bitmaps.values().forEach(Map::clear);
+                valoresPorProducto.clear();
+                todos.clear();
+            }
+            event.getEliminados().forEach(this::quitar);
+            for (ProductoDTO producto : event.getActualizados()) {
+                quitar(producto.getIdProducto());
+                agregar(producto);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Aplica los filtros y devuelve los productos que coinciden junto con el conteo por valor
+     * de cada faceta.
+     *
+     * @param filtros faceta -> valores aceptados (facetas ausentes o vacías no filtran)
+     * @param limite  máximo de ids de productos a devolver
+     */
+    public Resultado consultar(Map<String, Set<String>> filtros, int limite) {
+        lock.readLock().lock();
+        try {
+            Map<String, BitSet> porFaceta = new HashMap<>();
+            for (Map.Entry<String, Set<String>> filtro : filtros.entrySet()) {
+                if (filtro.getValue() != null && !filtro.getValue().isEmpty() && bitmaps.containsKey(filtro.getKey())) {
+                    BitSet union = new BitSet();
+                    for (String valor : filtro.getValue()) {
+                        BitSet bits = bitmaps.get(filtro.getKey()).get(valor);
+                        if (bits != null) {
+                            union.or(bits);
+                        }
+                    }
+                    porFaceta.put(filtro.getKey(), union);
+                }
+            }
+
+            BitSet coincidentes = interseccion(porFaceta, null);
+
+            Map<String, Map<String, Integer>> conteos = new LinkedHashMap<>();
+            for (String faceta : FACETAS.keySet()) {
+                // Conteo disyuntivo: se ignora el filtro de la propia faceta
+                BitSet base = porFaceta.containsKey(faceta) ? interseccion(porFaceta, faceta) : coincidentes;
+                Map<String, Integer> conteo = new LinkedHashMap<>();
+                for (Map.Entry<String, BitSet> valor : bitmaps.get(faceta).entrySet()) {
+                    BitSet bits = (BitSet) valor.getValue().clone();
+                    bits.and(base);
+                    int cantidad = bits.cardinality();
+                    if (cantidad > 0) {
+                        conteo.put(valor.getKey(), cantidad);
+                    }
+                }
+                conteos.put(faceta, conteo);
+            }
+
+            List<Long> ids = new ArrayList<>();
+            for (int i = coincidentes.nextSetBit(0); i >= 0 && ids.size() < limite; i = coincidentes.nextSetBit(i + 1)) {
+                ids.add((long) i);
+            }
+            return new Resultado(coincidentes.cardinality(), ids, conteos);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet interseccion(Map<String, BitSet> porFaceta, String excluir) {
+        BitSet resultado = (BitSet) todos.clone();
+        for (Map.Entry<String, BitSet> entrada : porFaceta.entrySet()) {
+            if (!entrada.getKey().equals(excluir)) {
+                resultado.and(entrada.getValue());
+            }
+        }
+        return resultado;
+    }
+
+    private void agregar(ProductoDTO producto) {
+        int bit = Math.toIntExact(producto.getIdProducto());
+        Map<String, String> valores = new HashMap<>();
+        for (Map.Entry<String, Function<ProductoDTO, Object>> faceta : FACETAS.entrySet()) {
+            Object valor = faceta.getValue().apply(producto);
+            if (valor != null && !valor.toString().isBlank()) {
+                String clave = valor.toString();
+                bitmaps.get(faceta.getKey()).computeIfAbsent(clave, k -> new BitSet()).set(bit);
+                valores.put(faceta.getKey(), clave);
+            }
+        }
+        valoresPorProducto.put(producto.getIdProducto(), valores);
+        todos.set(bit);
+    }
+
+    private void quitar(Long idProducto) {
+        Map<String, String> valores = valoresPorProducto.remove(idProducto);
+        if (valores == null) {
+            return;
+        }
+        int bit = Math.toIntExact(idProducto);
+        for (Map.Entry<String, String> valor : valores.entrySet()) {
+            Map<String, BitSet> porValor = bitmaps.get(valor.getKey());
+            BitSet bits = porValor.get(valor.getValue());
+            if (bits != null) {
+                bits.clear(bit);
+                if (bits.isEmpty()) {
+                    porValor.remove(valor.getValue());
+                }
+            }
+        }
+        todos.clear(bit);
+    }
+
+    /**
+     * Resultado de una consulta de facetas.
+     *
+     * @param total   cantidad de productos que cumplen todos los filtros
+     * @param ids     primeros ids (en orden ascendente) de los productos que cumplen los filtros
+     * @param conteos faceta -> valor -> cantidad de productos
+     */
+    public record Resultado(int total, List<Long> ids, Map<String, Map<String, Integer>> conteos) {
+    }
+}
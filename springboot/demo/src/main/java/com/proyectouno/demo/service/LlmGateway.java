@@ -0,0 +1,595 @@
+package com.proyectouno.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.cdimascio.dotenv.Dotenv;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Cliente del LLM (API compatible con OpenAI de Groq) usado por el chat.
+ *
+ * Usa el {@link HttpClient} del JDK en modo asíncrono: las respuestas se procesan en los hilos
+ * del cliente HTTP (un pool fijo y pequeño), sin ocupar hilos de Tomcat mientras el modelo
+ * genera, y la espera por un lugar en el bulkhead tampoco bloquea hilos. Las conexiones se
+ * reutilizan (keep-alive / HTTP/2) y su cantidad queda acotada por el bulkhead: el lugar se
+ * libera recién cuando termina el intercambio HTTP, que se cancela si se vence el plazo.
+ *
+ * Protecciones para que un LLM lento o caído no afecte al resto de la aplicación:
+ * <ul>
+ *   <li>Timeout de conexión y plazo máximo por llamada.</li>
+ *   <li>Bulkhead: un semáforo limita las llamadas simultáneas; si no hay lugar tras una espera
+ *       corta, la llamada se rechaza.</li>
+ *   <li>Circuit breaker: tras varios fallos seguidos se deja de llamar al LLM por un tiempo y
+ *       las llamadas fallan de inmediato con {@link LlmNoDisponibleException}; luego se deja
+ *       pasar una sola llamada de prueba para decidir si se cierra.</li>
+ * </ul>
+ */
+@Service
+public class LlmGateway {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final String url;
+    private final String modelo;
+    private final String apiKey;
+    private final HttpClient httpClient;
+    private final Limites limites;
+
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuito;
+
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private final AtomicLong exitos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong cortadasPorCliente = new AtomicLong();
+    private final AtomicLong rechazadasBulkhead = new AtomicLong();
+    private final AtomicLong rechazadasCircuito = new AtomicLong();
+    private final Histograma latencia = new Histograma();
+    private final Histograma latenciaPrimerFragmento = new Histograma();
+
+    @Autowired
+    public LlmGateway(@Value("${chat.llm.url:https://api.groq.com/openai/v1/chat/completions}") String url,
+                      @Value("${chat.llm.modelo:llama-3.1-8b-instant}") String modelo,
+                      @Value("${chat.llm.max-concurrentes:8}") int maxConcurrentes,
+                      @Value("${chat.llm.espera-cola-ms:200}") long esperaColaMs,
+                      @Value("${chat.llm.timeout-conexion-ms:3000}") long timeoutConexionMs,
+                      @Value("${chat.llm.timeout-respuesta-ms:30000}") long timeoutRespuestaMs,
+                      @Value("${chat.llm.circuito.umbral-fallos:5}") int umbralFallos,
+                      @Value("${chat.llm.circuito.abierto-segundos:30}") long abiertoSegundos,
+                      @Value("${chat.llm.hilos:4}") int hilos) {
+        this(url, modelo, Dotenv.configure().ignoreIfMissing().load().get("GROQ_API_KEY"),
+                HttpClient.newBuilder()
+                        .connectTimeout(Duration.ofMillis(timeoutConexionMs))
+                        .executor(Executors.newFixedThreadPool(hilos, r -> {
+                            Thread hilo = new Thread(r, "llm-http");
+                            hilo.setDaemon(true);
+                            return hilo;
+                        }))
+                        .build(),
+                new Limites(maxConcurrentes, esperaColaMs, timeoutRespuestaMs, umbralFallos,
+                        TimeUnit.SECONDS.toMillis(abiertoSegundos)));
+    }
+
+    LlmGateway(String url, String modelo, String apiKey, HttpClient httpClient) {
+        this(url, modelo, apiKey, httpClient, new Limites(8, 200, 30_000, 5, 30_000));
+    }
+
+    LlmGateway(String url, String modelo, String apiKey, HttpClient httpClient, Limites limites) {
+        this.url = url;
+        this.modelo = modelo;
+        this.apiKey = apiKey;
+        this.httpClient = httpClient;
+        this.limites = limites;
+        this.bulkhead = new Bulkhead(limites.maxConcurrentes());
+        this.circuito = new CircuitBreaker(limites.umbralFallos(), limites.abiertoMs());
+    }
+
+    /**
+     * Pide la respuesta completa (sin streaming).
+     *
+     * @return el texto de la respuesta; el futuro falla con {@link LlmNoDisponibleException} si el
+     *         circuito está abierto o no hay capacidad, o con {@link LlmException} si el LLM falla
+     */
+    public CompletableFuture<String> completar(String systemPrompt, String mensaje) {
+        return completar(systemPrompt, List.of(), mensaje);
+    }
+
+    /**
+     * Igual que {@link #completar(String, String)}, incluyendo antes del mensaje los turnos
+     * anteriores de la conversación ({@code role}/{@code content}).
+     */
+    public CompletableFuture<String> completar(String systemPrompt, List<Map<String, String>> historial, String mensaje) {
+        return ejecutar(() -> {
+            CompletableFuture<HttpResponse<String>> http = httpClient.sendAsync(
+                    crearRequest(systemPrompt, historial, mensaje, false),
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            return new Intercambio<>(http.thenApply(respuesta -> {
+                if (respuesta.statusCode() != 200) {
+                    throw new LlmException("El LLM respondió " + respuesta.statusCode() + ": " + respuesta.body());
+                }
+                try {
+                    JsonNode contenido = JSON.readTree(respuesta.body())
+                            .path("choices").path(0).path("message").path("content");
+                    return contenido.isTextual() ? contenido.asText() : null;
+                } catch (JsonProcessingException e) {
+                    throw new LlmException("Respuesta del LLM inválida: " + e.getMessage());
+                }
+            }), http);
+        });
+    }
+
+    /**
+     * Pide una respuesta en streaming y entrega cada fragmento de texto a {@code alRecibir}
+     * apenas llega. El futuro se completa al terminar la respuesta, o con error si el servidor
+     * responde con un estado distinto de 200, si se vence el plazo o si {@code alRecibir} lanza
+     * una excepción (por ejemplo, porque el navegador se desconectó); en esos casos se corta la
+     * descarga. Un error de {@code alRecibir} llega como {@link ConsumidorException} y no cuenta
+     * como fallo del LLM para el circuit breaker.
+     */
+    public CompletableFuture<Void> streamear(String systemPrompt, String mensaje, Consumer<String> alRecibir) {
+        return streamear(systemPrompt, List.of(), mensaje, alRecibir);
+    }
+
+    /**
+     * Igual que {@link #streamear(String, String, Consumer)}, con los turnos anteriores de la conversación.
+     */
+    public CompletableFuture<Void> streamear(String systemPrompt, List<Map<String, String>> historial, String mensaje,
+                                             Consumer<String> alRecibir) {
+        return ejecutar(() -> {
+            CompletableFuture<Void> resultado = new CompletableFuture<>();
+            long inicio = System.nanoTime();
+            LectorEventos lector = new LectorEventos(alRecibir, resultado,
+                    () -> latenciaPrimerFragmento.registrar(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio)));
+
+            HttpResponse.BodyHandler<Void> manejador = info -> info.statusCode() == 200
+                    ? HttpResponse.BodySubscribers.fromLineSubscriber(lector)
+                    : HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8),
+                            cuerpo -> {
+                                throw new LlmException("El LLM respondió " + info.statusCode() + ": " + cuerpo);
+                            });
+
+            CompletableFuture<HttpResponse<Void>> http =
+                    httpClient.sendAsync(crearRequest(systemPrompt, historial, mensaje, true), manejador);
+            http.whenComplete((respuesta, error) -> {
+                if (error != null) {
+                    resultado.completeExceptionally(causaReal(error));
+                } else {
+                    resultado.complete(null);
+                }
+            });
+            // Si el resultado termina antes (plazo vencido o error del consumidor) se deja de leer
+            resultado.whenComplete((r, error) -> lector.cancelar());
+            return new Intercambio<>(resultado, http);
+        });
+    }
+
+    /**
+     * Indica si el circuito permite llamar al LLM (cerrado, o abierto pero ya listo para una prueba).
+     */
+    public boolean disponible() {
+        return circuito.disponible();
+    }
+
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("circuito", circuito.estado().name());
+        stats.put("enCurso", enCurso.get());
+        stats.put("enCola", bulkhead.enCola());
+        stats.put("maxConcurrentes", limites.maxConcurrentes());
+        stats.put("exitos", exitos.get());
+        stats.put("fallos", fallos.get());
+        stats.put("timeouts", timeouts.get());
+        stats.put("cortadasPorCliente", cortadasPorCliente.get());
+        stats.put("rechazadasBulkhead", rechazadasBulkhead.get());
+        stats.put("rechazadasCircuito", rechazadasCircuito.get());
+        stats.put("latenciaMs", latencia.aMapa());
+        stats.put("latenciaPrimerFragmentoMs", latenciaPrimerFragmento.aMapa());
+        return stats;
+    }
+
+    /**
+     * Aplica bulkhead, circuit breaker y plazo a una llamada y registra sus métricas.
+     * No bloquea: si el bulkhead está lleno, la llamada espera en cola sin ocupar un hilo.
+     */
+    private <T> CompletableFuture<T> ejecutar(Supplier<Intercambio<T>> llamada) {
+        return bulkhead.adquirir(limites.esperaColaMs())
+                .handle((v, error) -> error == null)
+                .thenCompose(permiso -> {
+                    if (!permiso) {
+                        rechazadasBulkhead.incrementAndGet();
+                        return CompletableFuture.failedFuture(
+                                new LlmNoDisponibleException("Hay demasiadas consultas al asistente en este momento"));
+                    }
+                    if (!circuito.permitir()) {
+                        bulkhead.liberar();
+                        rechazadasCircuito.incrementAndGet();
+                        return CompletableFuture.failedFuture(
+                                new LlmNoDisponibleException("El asistente no está disponible temporalmente"));
+                    }
+                    return llamar(llamada);
+                });
+    }
+
+    private <T> CompletableFuture<T> llamar(Supplier<Intercambio<T>> llamada) {
+        enCurso.incrementAndGet();
+        long inicio = System.nanoTime();
+        Intercambio<T> intercambio;
+        try {
+            intercambio = llamada.get();
+        } catch (RuntimeException e) {
+            intercambio = new Intercambio<>(CompletableFuture.failedFuture(e), CompletableFuture.completedFuture(null));
+        }
+        // El lugar en el bulkhead se libera cuando termina el intercambio HTTP, no el resultado
+        intercambio.http().whenComplete((r, error) -> {
+            enCurso.decrementAndGet();
+            bulkhead.liberar();
+        });
+        CompletableFuture<?> http = intercambio.http();
+        return intercambio.resultado()
+                .orTimeout(limites.timeoutRespuestaMs(), TimeUnit.MILLISECONDS)
+                .whenComplete((resultado, error) -> {
+                    latencia.registrar(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+                    if (error == null) {
+                        exitos.incrementAndGet();
+                        circuito.exito();
+                        return;
+                    }
+                    // Corta la descarga si sigue en curso (plazo vencido o error del consumidor)
+                    http.cancel(true);
+                    Throwable causa = causaReal(error);
+                    if (causa instanceof ConsumidorException) {
+                        // Falló quien recibía (p. ej. el navegador se desconectó), no el LLM: ya
+                        // había enviado fragmentos, así que cuenta como respuesta del LLM
+                        cortadasPorCliente.incrementAndGet();
+                        circuito.exito();
+                        return;
+                    }
+                    fallos.incrementAndGet();
+                    if (causa instanceof TimeoutException) {
+                        timeouts.incrementAndGet();
+                    }
+                    circuito.fallo();
+                });
+    }
+
+    // El cliente HTTP envuelve los errores en CompletionException
+    private static Throwable causaReal(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private HttpRequest crearRequest(String systemPrompt, List<Map<String, String>> historial, String mensaje,
+                                     boolean stream) {
+        List<Map<String, String>> mensajes = new ArrayList<>(historial.size() + 2);
+        mensajes.add(Map.of("role", "system", "content", systemPrompt));
+        mensajes.addAll(historial);
+        mensajes.add(Map.of("role", "user", "content", mensaje));
+        Map<String, Object> cuerpo = Map.of(
+                "model", modelo,
+                "messages", mensajes,
+                "temperature", 0.7,
+                "max_tokens", 1024,
+                "stream", stream);
+        try {
+            return HttpRequest.newBuilder(URI.create(url))
+                    .timeout(Duration.ofMillis(limites.timeoutRespuestaMs()))
+                    .header("Authorization", "Bearer " + apiKey)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(JSON.writeValueAsString(cuerpo)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new LlmException("No se pudo armar la solicitud al LLM: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Límites de uso del LLM.
+     *
+     * @param maxConcurrentes    llamadas simultáneas permitidas (bulkhead)
+     * @param esperaColaMs       cuánto espera una llamada por un lugar antes de rechazarse
+     * @param timeoutRespuestaMs plazo máximo de cada llamada
+     * @param umbralFallos       fallos seguidos que abren el circuito
+     * @param abiertoMs          tiempo que el circuito queda abierto antes de probar de nuevo
+     */
+    record Limites(int maxConcurrentes, long esperaColaMs, long timeoutRespuestaMs, int umbralFallos, long abiertoMs) {
+    }
+
+    /**
+     * Error al comunicarse con el LLM.
+     */
+    public static class LlmException extends RuntimeException {
+        public LlmException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Falló el consumidor de los fragmentos ({@code alRecibir} de {@link #streamear}); no es un
+     * fallo del LLM.
+     */
+    public static class ConsumidorException extends RuntimeException {
+        public ConsumidorException(Throwable cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * No se llamó al LLM porque el circuito está abierto o no hay capacidad (falla rápida).
+     */
+    public static class LlmNoDisponibleException extends LlmException {
+        public LlmNoDisponibleException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Una llamada en curso: el futuro con el resultado y el del intercambio HTTP, que puede
+     * terminar después (y que se cancela si el resultado falla antes).
+     */
+    private record Intercambio<T>(CompletableFuture<T> resultado, CompletableFuture<?> http) {
+    }
+
+    /**
+     * Semáforo asíncrono: quien no consigue lugar recibe un futuro que se completa cuando se
+     * libera uno (en orden de llegada) o falla al vencer la espera, sin bloquear el hilo.
+     */
+    private static final class Bulkhead {
+
+        private final ArrayDeque<CompletableFuture<Void>> espera = new ArrayDeque<>();
+        private int libres;
+
+        Bulkhead(int maxConcurrentes) {
+            this.libres = maxConcurrentes;
+        }
+
+        CompletableFuture<Void> adquirir(long esperaMs) {
+            CompletableFuture<Void> turno;
+            synchronized (this) {
+                if (libres > 0) {
+                    libres--;
+                    return CompletableFuture.completedFuture(null);
+                }
+                if (esperaMs <= 0) {
+                    return CompletableFuture.failedFuture(new TimeoutException());
+                }
+                turno = new CompletableFuture<>();
+                espera.addLast(turno);
+            }
+            // Quien espera ve el resultado después de que el turno vencido salió de la cola
+            return turno.orTimeout(esperaMs, TimeUnit.MILLISECONDS)
+                    .whenComplete((v, error) -> {
+                        if (error != null) {
+                            synchronized (this) {
+                                espera.remove(turno);
+                            }
+                        }
+                    });
+        }
+
+        void liberar() {
+            while (true) {
+                CompletableFuture<Void> siguiente;
+                synchronized (this) {
+                    siguiente = espera.pollFirst();
+                    if (siguiente == null) {
+                        libres++;
+                        return;
+                    }
+                }
+                // Si ya venció su espera se pasa el lugar al siguiente
+                if (siguiente.complete(null)) {
+                    return;
+                }
+            }
+        }
+
+        synchronized int enCola() {
+            return espera.size();
+        }
+    }
+
+    /**
+     * Circuit breaker por fallos consecutivos: CERRADO → ABIERTO al llegar al umbral; tras el
+     * tiempo de espera pasa a SEMIABIERTO y deja pasar una única llamada de prueba.
+     */
+    private static final class CircuitBreaker {
+
+        enum Estado { CERRADO, ABIERTO, SEMIABIERTO }
+
+        private final int umbralFallos;
+        private final long abiertoNanos;
+        private Estado estado = Estado.CERRADO;
+        private int fallosSeguidos;
+        private long abiertoDesde;
+        private boolean pruebaEnCurso;
+
+        CircuitBreaker(int umbralFallos, long abiertoMs) {
+            this.umbralFallos = umbralFallos;
+            this.abiertoNanos = TimeUnit.MILLISECONDS.toNanos(abiertoMs);
+        }
+
+        synchronized boolean permitir() {
+            if (estado == Estado.ABIERTO) {
+                if (System.nanoTime() - abiertoDesde < abiertoNanos) {
+                    return false;
+                }
+                estado = Estado.SEMIABIERTO;
+                pruebaEnCurso = false;
+            }
+            if (estado == Estado.SEMIABIERTO) {
+                if (pruebaEnCurso) {
+                    return false;
+                }
+                pruebaEnCurso = true;
+            }
+            return true;
+        }
+
+        synchronized boolean disponible() {
+            return estado != Estado.ABIERTO || System.nanoTime() - abiertoDesde >= abiertoNanos;
+        }
+
+        synchronized void exito() {
+            estado = Estado.CERRADO;
+            fallosSeguidos = 0;
+            pruebaEnCurso = false;
+        }
+
+        synchronized void fallo() {
+            fallosSeguidos++;
+            if (estado == Estado.SEMIABIERTO || fallosSeguidos >= umbralFallos) {
+                estado = Estado.ABIERTO;
+                abiertoDesde = System.nanoTime();
+                pruebaEnCurso = false;
+            }
+        }
+
+        synchronized Estado estado() {
+            return estado;
+        }
+    }
+
+    /**
+     * Histograma de latencias en milisegundos con cubetas fijas.
+     */
+    private static final class Histograma {
+
+        private static final long[] LIMITES_MS = {100, 250, 500, 1000, 2500, 5000, 10000, 30000};
+
+        private final AtomicLongArray cubetas = new AtomicLongArray(LIMITES_MS.length + 1);
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong sumaMs = new AtomicLong();
+
+        void registrar(long ms) {
+            int i = 0;
+            while (i < LIMITES_MS.length && ms > LIMITES_MS[i]) {
+                i++;
+            }
+            cubetas.incrementAndGet(i);
+            total.incrementAndGet();
+            sumaMs.addAndGet(ms);
+        }
+
+        Map<String, Object> aMapa() {
+            Map<String, Object> mapa = new LinkedHashMap<>();
+            for (int i = 0; i < LIMITES_MS.length; i++) {
+                mapa.put("<=" + LIMITES_MS[i], cubetas.get(i));
+            }
+            mapa.put(">" + LIMITES_MS[LIMITES_MS.length - 1], cubetas.get(LIMITES_MS.length));
+            long n = total.get();
+            mapa.put("total", n);
+            mapa.put("promedio", n == 0 ? 0 : sumaMs.get() / n);
+            return mapa;
+        }
+    }
+
+    /**
+     * Lee las líneas "data: {...}" del stream SSE y extrae choices[0].delta.content de cada una.
+     */
+    private static final class LectorEventos implements Flow.Subscriber<String> {
+
+        private final Consumer<String> alRecibir;
+        private final CompletableFuture<Void> resultado;
+        private final Runnable alPrimerFragmento;
+        private volatile Flow.Subscription suscripcion;
+        private volatile boolean cancelado;
+        private boolean primero = true;
+
+        LectorEventos(Consumer<String> alRecibir, CompletableFuture<Void> resultado, Runnable alPrimerFragmento) {
+            this.alRecibir = alRecibir;
+            this.resultado = resultado;
+            this.alPrimerFragmento = alPrimerFragmento;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.suscripcion = subscription;
+            if (cancelado) {
+                subscription.cancel();
+                return;
+            }
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        /**
+         * Deja de leer el stream (sin esperar a que llegue otra línea).
+         */
+        void cancelar() {
+            cancelado = true;
+            Flow.Subscription s = suscripcion;
+            if (s != null) {
+                s.cancel();
+            }
+        }
+
+        @Override
+        public void onNext(String linea) {
+            if (cancelado || resultado.isDone()) {
+                return;
+            }
+            if (!linea.startsWith("data:")) {
+                return;
+            }
+            String datos = linea.substring(5).trim();
+            if (datos.isEmpty() || "[DONE]".equals(datos)) {
+                return;
+            }
+            JsonNode delta;
+            try {
+                delta = JSON.readTree(datos).path("choices").path(0).path("delta").path("content");
+            } catch (JsonProcessingException e) {
+                resultado.completeExceptionally(new LlmException("Fragmento del LLM inválido: " + e.getMessage()));
+                return;
+            }
+            if (delta.isTextual() && !delta.asText().isEmpty()) {
+                if (primero) {
+                    primero = false;
+                    alPrimerFragmento.run();
+                }
+                try {
+                    alRecibir.accept(delta.asText());
+                } catch (RuntimeException e) {
+                    resultado.completeExceptionally(new ConsumidorException(e));
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            resultado.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
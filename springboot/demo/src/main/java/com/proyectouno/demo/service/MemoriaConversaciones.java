@@ -0,0 +1,134 @@
+package com.proyectouno.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Historial de las conversaciones del chat, para que el LLM reciba los turnos anteriores.
+ *
+ * El uso de memoria está acotado sin importar cuántas sesiones haya:
+ * <ul>
+ *   <li>Cada conversación tiene un presupuesto de tokens (estimados como caracteres / 4). Al
+ *       superarlo se descartan los turnos más antiguos; un turno que por sí solo no entra se recorta.</li>
+ *   <li>Hay un máximo global de conversaciones; al llenarse sale la usada hace más tiempo (LRU).</li>
+ *   <li>Una conversación sin actividad durante el tiempo configurado se descarta.</li>
+ * </ul>
+ * Así el máximo es de unas {@code maxConversaciones × tokensPorConversacion × 4} caracteres.
+ */
+@Service
+public class MemoriaConversaciones {
+
+    private static final int CARACTERES_POR_TOKEN = 4;
+    // Costo aproximado por mensaje además del texto (rol y separadores)
+    private static final int TOKENS_POR_MENSAJE = 4;
+    private static final int MAX_LARGO_ID = 64;
+
+    private final CacheLruTtl<String, Conversacion> conversaciones;
+    private final int tokensPorConversacion;
+
+    private final AtomicLong turnosDescartados = new AtomicLong();
+    private final AtomicLong turnosRecortados = new AtomicLong();
+
+    public MemoriaConversaciones(@Value("${chat.memoria.max-conversaciones:5000}") int maxConversaciones,
+                                 @Value("${chat.memoria.tokens-por-conversacion:1500}") int tokensPorConversacion,
+                                 @Value("${chat.memoria.inactividad-minutos:30}") long inactividadMinutos) {
+        // El TTL se renueva en cada turno (put), así que funciona como tiempo máximo de inactividad
+        this.conversaciones = new CacheLruTtl<>(maxConversaciones, inactividadMinutos * 60);
+        this.tokensPorConversacion = tokensPorConversacion;
+    }
+
+    /**
+     * Devuelve el id si corresponde a una conversación emitida por este servidor y todavía activa;
+     * si no viene, es desconocido o ya expiró, emite uno nuevo (UUID aleatorio) y lo registra. Así
+     * un cliente no puede elegir el id ni continuar una conversación que no recibió.
+     */
+    public String idValido(String conversationId) {
+        if (conversationId != null && conversationId.length() <= MAX_LARGO_ID
+                && conversaciones.get(conversationId) != null) {
+            return conversationId;
+        }
+        String nuevo = UUID.randomUUID().toString();
+        conversaciones.put(nuevo, new Conversacion());
+        return nuevo;
+    }
+
+    /**
+     * Turnos anteriores de la conversación en el formato de mensajes de la API
+     * ({@code role}/{@code content}), del más antiguo al más reciente.
+     */
+    public List<Map<String, String>> historial(String conversationId) {
+        Conversacion conversacion = conversaciones.get(conversationId);
+        if (conversacion == null) {
+            return List.of();
+        }
+        synchronized (conversacion) {
+            List<Map<String, String>> mensajes = new ArrayList<>(conversacion.turnos.size());
+            for (Turno turno : conversacion.turnos) {
+                mensajes.add(Map.of("role", turno.rol(), "content", turno.texto()));
+            }
+            return mensajes;
+        }
+    }
+
+    /**
+     * Agrega la pregunta y la respuesta a la conversación y aplica el presupuesto de tokens.
+     */
+    public void registrar(String conversationId, String pregunta, String respuesta) {
+        // Atómico: dos turnos simultáneos de la misma conversación escriben sobre el mismo objeto
+        Conversacion conversacion = conversaciones.computeIfAbsent(conversationId, id -> new Conversacion());
+        synchronized (conversacion) {
+            conversacion.agregar(turno("user", pregunta));
+            conversacion.agregar(turno("assistant", respuesta));
+            while (conversacion.tokens > tokensPorConversacion && conversacion.turnos.size() > 1) {
+                conversacion.quitarPrimero();
+                turnosDescartados.incrementAndGet();
+            }
+        }
+    }
+
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> stats = conversaciones.estadisticas();
+        stats.put("tokensPorConversacion", tokensPorConversacion);
+        stats.put("turnosDescartados", turnosDescartados.get());
+        stats.put("turnosRecortados", turnosRecortados.get());
+        return stats;
+    }
+
+    private Turno turno(String rol, String texto) {
+        if (texto == null) {
+            texto = "";
+        }
+        int maxCaracteres = (tokensPorConversacion - TOKENS_POR_MENSAJE) * CARACTERES_POR_TOKEN;
+        if (texto.length() > maxCaracteres) {
+            // Se conserva el final: en un turno largo suele estar lo último que se dijo
+            texto = "…" + texto.substring(texto.length() - maxCaracteres + 1);
+            turnosRecortados.incrementAndGet();
+        }
+        return new Turno(rol, texto, texto.length() / CARACTERES_POR_TOKEN + TOKENS_POR_MENSAJE);
+    }
+
+    private record Turno(String rol, String texto, int tokens) {
+    }
+
+    private static final class Conversacion {
+
+        final ArrayDeque<Turno> turnos = new ArrayDeque<>();
+        int tokens;
+
+        void agregar(Turno turno) {
+            turnos.addLast(turno);
+            tokens += turno.tokens();
+        }
+
+        void quitarPrimero() {
+            tokens -= turnos.removeFirst().tokens();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.proyectouno.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Genera los números de reserva con el formato {@code RES-AAAA-NNNNNN} (año de la reserva y un
+ * correlativo global, p. ej. RES-2025-000123).
+ *
+ * El correlativo sale de una secuencia de PostgreSQL que avanza de a {@code bloque}: cada
+ * {@code nextval} reserva para esta instancia los números [valor, valor + bloque), que se
+ * entregan desde memoria. Solo se consulta la base de datos una vez por bloque, y como cada
+ * bloque se asigna a una sola instancia, los números no se repiten aunque corran varias.
+ * Si la instancia se reinicia se pierden los números que le quedaban del bloque (quedan huecos,
+ * no repetidos). El índice único de numero_reserva lo garantiza en la base de datos.
+ */
+@Service
+public class NumeroReservaGenerador {
+
+    private static final String SECUENCIA = "reservas_numero_seq";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final int bloqueConfigurado;
+
+    private long bloque;
+    private long siguiente;
+    private long limite;
+
+    public NumeroReservaGenerador(@Value("${reserva.numero.bloque:50}") int bloqueConfigurado) {
+        this.bloqueConfigurado = bloqueConfigurado;
+    }
+
+    /**
+     * Crea la secuencia si no existe. Se hace al inicializar el bean, fuera de cualquier transacción
+     * (si se creara dentro de la de una reserva y esta hiciera rollback, la secuencia volvería a
+     * empezar) y antes de que el servidor acepte solicitudes: con {@code bloque} todavía en 0 una
+     * reserva temprana tomaría un bloque vacío.
+     */
+    @PostConstruct
+    public synchronized void crearSecuencia() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + SECUENCIA
+                + " START WITH 1 INCREMENT BY " + bloqueConfigurado);
+        // Si ya existía se usa su incremento: todas las instancias deben usar el mismo bloque
+        bloque = jdbcTemplate.queryForObject(
+                "SELECT increment_by FROM pg_sequences WHERE sequencename = ?", Long.class, SECUENCIA);
+    }
+
+    /**
+     * Número para una reserva hecha en la fecha indicada.
+     */
+    public String siguiente(LocalDateTime fechaReserva) {
+        return String.format("RES-%d-%06d", fechaReserva.getYear(), siguienteCorrelativo());
+    }
+
+    private synchronized long siguienteCorrelativo() {
+        if (siguiente >= limite) {
+            siguiente = jdbcTemplate.queryForObject("SELECT nextval('" + SECUENCIA + "')", Long.class);
+            limite = siguiente + bloque;
+        }
+        return siguiente++;
+    }
+}
@@ -0,0 +1,177 @@
+package com.proyectouno.demo.service;
+
+import com.proyectouno.demo.DTO.ProductoDTO;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria para la búsqueda de productos por texto.
+ *
+ * Indexa nombre, descripción, principio activo, laboratorio y forma farmacéutica con
+ * normalización sin tildes y raíces en español ({@link TextoNormalizador}), y ordena los
+ * resultados con BM25. Cada campo tiene un peso distinto: una coincidencia en el nombre
+ * cuenta más que una en la descripción.
+ *
+ * Se actualiza de forma incremental con {@link CatalogoRecargadoEvent}.
+ */
+@Service
+public class ProductoBusquedaIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final float PESO_NOMBRE = 3.0f;
+    private static final float PESO_PRINCIPIO_ACTIVO = 2.5f;
+    private static final float PESO_LABORATORIO = 1.5f;
+    private static final float PESO_FORMA = 1.0f;
+    private static final float PESO_DESCRIPCION = 1.0f;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // término -> (idProducto -> frecuencia ponderada)
+    private final Map<String, Map<Long, Float>> postings = new HashMap<>();
+    // idProducto -> términos indexados, para poder quitarlo del índice
+    private final Map<Long, Map<String, Float>> terminosPorProducto = new HashMap<>();
+    // idProducto -> longitud ponderada del documento
+    private final Map<Long, Float> longitudes = new HashMap<>();
+    private double sumaLongitudes;
+
+    @EventListener
+    public void onCatalogoRecargado(CatalogoRecargadoEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.isCompleto()) {
+                postings.clear();
+                terminosPorProducto.clear();
+                longitudes.clear();
+                sumaLongitudes = 0;
+            }
+            event.getEliminados().forEach(this::quitar);
+            for (ProductoDTO producto : event.getActualizados()) {
+                quitar(producto.getIdProducto());
+                agregar(producto);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca productos por texto libre y devuelve los mejores resultados ordenados por puntaje.
+     */
+    public List<Resultado> buscar(String consulta, int limite) {
+        // Términos sin repetir: repetir una palabra en la consulta no debe sumar dos veces
+        List<String> terminos = new ArrayList<>(new LinkedHashSet<>(TextoNormalizador.terminos(consulta)));
+        if (terminos.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        Map<Long, Double> puntajes = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int totalDocumentos = longitudes.size();
+            if (totalDocumentos == 0) {
+                return List.of();
+            }
+            double longitudPromedio = sumaLongitudes / totalDocumentos;
+            for (String termino : terminos) {
+                Map<Long, Float> lista = postings.get(termino);
+                if (lista == null) {
+                    continue;
+                }
+                int df = lista.size();
+                double idf = Math.log(1 + (totalDocumentos - df + 0.5) / (df + 0.5));
+                for (Map.Entry<Long, Float> posting : lista.entrySet()) {
+                    double tf = posting.getValue();
+                    double dl = longitudes.get(posting.getKey());
+                    double puntaje = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * dl / longitudPromedio));
+                    puntajes.merge(posting.getKey(), puntaje, Double::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Top-k con un montículo de tamaño acotado
+        PriorityQueue<Resultado> mejores = new PriorityQueue<>(Comparator.comparingDouble(Resultado::puntaje));
+        for (Map.Entry<Long, Double> entrada : puntajes.entrySet()) {
+            if (mejores.size() < limite) {
+                mejores.add(new Resultado(entrada.getKey(), entrada.getValue()));
+            } else if (entrada.getValue() > mejores.peek().puntaje()) {
+                mejores.poll();
+                mejores.add(new Resultado(entrada.getKey(), entrada.getValue()));
+            }
+        }
+        List<Resultado> resultado = new ArrayList<>(mejores);
+        resultado.sort(Comparator.comparingDouble(Resultado::puntaje).reversed());
+        return resultado;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return longitudes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void agregar(ProductoDTO producto) {
+        Map<String, Float> frecuencias = new HashMap<>();
+        acumular(frecuencias, producto.getNombre(), PESO_NOMBRE);
+        acumular(frecuencias, producto.getPrincipioActivo(), PESO_PRINCIPIO_ACTIVO);
+        acumular(frecuencias, producto.getLaboratorio(), PESO_LABORATORIO);
+        acumular(frecuencias, producto.getFormaFarmaceutica(), PESO_FORMA);
+        acumular(frecuencias, producto.getDescripcion(), PESO_DESCRIPCION);
+
+        float longitud = 0;
+        for (Map.Entry<String, Float> entrada : frecuencias.entrySet()) {
+            postings.computeIfAbsent(entrada.getKey(), k -> new HashMap<>())
+                    .put(producto.getIdProducto(), entrada.getValue());
+            longitud += entrada.getValue();
+        }
+        terminosPorProducto.put(producto.getIdProducto(), frecuencias);
+        longitudes.put(producto.getIdProducto(), longitud);
+        sumaLongitudes += longitud;
+    }
+
+    private void quitar(Long idProducto) {
+        Map<String, Float> terminos = terminosPorProducto.remove(idProducto);
+        if (terminos == null) {
+            return;
+        }
+        for (String termino : terminos.keySet()) {
+            Map<Long, Float> lista = postings.get(termino);
+            if (lista != null) {
+                lista.remove(idProducto);
+                if (lista.isEmpty()) {
+                    postings.remove(termino);
+                }
+            }
+        }
+        Float longitud = longitudes.remove(idProducto);
+        if (longitud != null) {
+            sumaLongitudes -= longitud;
+        }
+    }
+
+    private static void acumular(Map<String, Float> frecuencias, String texto, float peso) {
+        for (String termino : TextoNormalizador.terminos(texto)) {
+            frecuencias.merge(termino, peso, Float::sum);
+        }
+    }
+
+    /**
+     * Resultado de búsqueda: id del producto y su puntaje BM25.
+     */
+    public record Resultado(Long idProducto, double puntaje) {
+    }
+}
@@ -0,0 +1,298 @@
+package com.proyectouno.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proyectouno.demo.DTO.CategoriaDTO;
+import com.proyectouno.demo.DTO.ProductoDTO;
+import com.proyectouno.demo.repository.CategoriaRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Importación masiva de productos desde CSV o NDJSON (por ejemplo, la lista de precios de un proveedor).
+ *
+ * Cada fila se valida con las mismas restricciones de {@link ProductoDTO} que usa el alta individual.
+ * Las categorías se leen una sola vez y se aceptan por idCategoria o por categoriaNombre. Las filas
+ * válidas se escriben por JDBC en lotes de {@value #FILAS_POR_LOTE} con
+ * {@code INSERT ... ON CONFLICT (codigo_barras) DO UPDATE}, así que un código de barras existente
+ * actualiza el producto en lugar de duplicarlo. Por eso el código de barras es obligatorio en la
+ * importación: una fila sin código se reporta como error en lugar de insertarse de nuevo cada vez.
+ * Cada lote va en su propia transacción: si la base de datos rechaza uno, sus filas se reintentan
+ * de a una para reportar solo las que fallan, y el resto de la importación continúa.
+ *
+ * En CSV la primera línea es la cabecera con los nombres de los campos del DTO, las imágenes
+ * adicionales se separan con '|' y cada fila ocupa una sola línea (ver {@link #parsearCsv}).
+ */
+@Service
+public class ProductoImportador {
+
+    static final int FILAS_POR_LOTE = 1000;
+
+    private static final String UPSERT = "INSERT INTO productos (codigo_barras, nombre, descripcion, precio, " +
+            "stock_actual, stock_minimo, id_categoria, imagen_principal, imagenes_adicionales, requiere_receta, " +
+            "es_controlado, fecha_vencimiento, laboratorio, principio_activo, concentracion, forma_farmaceutica, " +
+            "estado, fecha_creacion) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, CAST(? AS json), ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (codigo_barras) DO UPDATE SET nombre = EXCLUDED.nombre, " +
+            "descripcion = EXCLUDED.descripcion, precio = EXCLUDED.precio, stock_actual = EXCLUDED.stock_actual, " +
+            "stock_minimo = EXCLUDED.stock_minimo, id_categoria = EXCLUDED.id_categoria, " +
+            "imagen_principal = EXCLUDED.imagen_principal, imagenes_adicionales = EXCLUDED.imagenes_adicionales, " +
+            "requiere_receta = EXCLUDED.requiere_receta, es_controlado = EXCLUDED.es_controlado, " +
+            "fecha_vencimiento = EXCLUDED.fecha_vencimiento, laboratorio = EXCLUDED.laboratorio, " +
+            "principio_activo = EXCLUDED.principio_activo, concentracion = EXCLUDED.concentracion, " +
+            "forma_farmaceutica = EXCLUDED.forma_farmaceutica, estado = EXCLUDED.estado, " +
+            "fecha_actualizacion = EXCLUDED.fecha_creacion";
+
+    public enum Formato { CSV, NDJSON }
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public Resultado importar(InputStream entrada, Formato formato) throws IOException {
+        // Categorías resueltas una sola vez: por id y por nombre normalizado
+        Map<Long, CategoriaDTO> categoriasPorId = new HashMap<>();
+        Map<String, CategoriaDTO> categoriasPorNombre = new HashMap<>();
+        for (CategoriaDTO categoria : categoriaRepository.findAllDTO()) {
+            categoriasPorId.put(categoria.getIdCategoria(), categoria);
+            categoriasPorNombre.put(TextoNormalizador.normalizar(categoria.getNombre()), categoria);
+        }
+
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        List<ErrorFila> errores = new ArrayList<>();
+        Map<String, Integer> filaPorCodigo = new HashMap<>();
+        List<Fila> lote = new ArrayList<>(FILAS_POR_LOTE);
+        int procesadas = 0;
+        int importadas = 0;
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8))) {
+            String[] cabecera = null;
+            String linea;
+            int numeroLinea = 0;
+            while ((linea = lector.readLine()) != null) {
+                numeroLinea++;
+                if (linea.isBlank()) {
+                    continue;
+                }
+                if (formato == Formato.CSV && cabecera == null) {
+                    cabecera = parsearCsv(linea).stream().map(String::trim).toArray(String[]::new);
+                    continue;
+                }
+                procesadas++;
+
+                ProductoDTO dto;
+                try {
+                    dto = formato == Formato.CSV ? desdeCsv(cabecera, linea) : objectMapper.readValue(linea, ProductoDTO.class);
+                } catch (JsonProcessingException | IllegalArgumentException e) {
+                    errores.add(new ErrorFila(numeroLinea, null, List.of("Formato inválido: " + e.getMessage())));
+                    continue;
+                }
+
+                if (dto.getIdCategoria() == null && dto.getCategoriaNombre() != null) {
+                    CategoriaDTO categoria = categoriasPorNombre.get(TextoNormalizador.normalizar(dto.getCategoriaNombre()));
+                    if (categoria != null) {
+                        dto.setIdCategoria(categoria.getIdCategoria());
+                    }
+                }
+                if (dto.getStockMinimo() == null) {
+                    dto.setStockMinimo(5);
+                }
+                if (dto.getCodigoBarras() != null && dto.getCodigoBarras().isBlank()) {
+                    dto.setCodigoBarras(null);
+                }
+
+                List<String> mensajes = validator.validate(dto).stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.toList());
+                if (dto.getIdCategoria() != null && !categoriasPorId.containsKey(dto.getIdCategoria())) {
+                    mensajes.add("Categoría no encontrada con ID: " + dto.getIdCategoria());
+                }
+                if (dto.getCodigoBarras() == null) {
+                    // Sin código el ON CONFLICT no encuentra el producto y cada importación lo volvería a insertar
+                    mensajes.add("El código de barras es obligatorio para importar");
+                } else {
+                    // Dos filas con el mismo código en un mismo lote harían fallar el ON CONFLICT
+                    Integer anterior = filaPorCodigo.putIfAbsent(dto.getCodigoBarras(), numeroLinea);
+                    if (anterior != null) {
+                        mensajes.add("Código de barras repetido en el archivo (línea " + anterior + ")");
+                    }
+                }
+                if (!mensajes.isEmpty()) {
+                    errores.add(new ErrorFila(numeroLinea, dto.getCodigoBarras(), mensajes));
+                    continue;
+                }
+
+                lote.add(new Fila(numeroLinea, dto));
+                if (lote.size() == FILAS_POR_LOTE) {
+                    importadas += escribirLote(transaccion, lote, ahora, errores);
+                    lote.clear();
+                }
+            }
+        }
+        if (!lote.isEmpty()) {
+            importadas += escribirLote(transaccion, lote, ahora, errores);
+        }
+
+        if (importadas > 0) {
+            eventPublisher.publishEvent(CatalogoCambiadoEvent.todo());
+        }
+        return new Resultado(procesadas, importadas, errores);
+    }
+
+    private int escribirLote(TransactionTemplate transaccion, List<Fila> lote, Timestamp ahora, List<ErrorFila> errores) {
+        List<Object[]> parametros = new ArrayList<>(lote.size());
+        for (Fila fila : lote) {
+            parametros.add(aParametros(fila.dto(), ahora));
+        }
+        try {
+            transaccion.executeWithoutResult(estado -> jdbcTemplate.batchUpdate(UPSERT, parametros));
+            return lote.size();
+        } catch (DataAccessException e) {
+            // El lote se deshizo entero; se repite fila por fila para saber cuáles falla la base de datos
+            int importadas = 0;
+            for (int i = 0; i < lote.size(); i++) {
+                Object[] fila = parametros.get(i);
+                try {
+                    transaccion.executeWithoutResult(estado -> jdbcTemplate.update(UPSERT, fila));
+                    importadas++;
+                } catch (DataAccessException ef) {
+                    errores.add(new ErrorFila(lote.get(i).linea(), lote.get(i).dto().getCodigoBarras(),
+                            List.of("Rechazada por la base de datos: " + ef.getMostSpecificCause().getMessage())));
+                }
+            }
+            return importadas;
+        }
+    }
+
+    private Object[] aParametros(ProductoDTO dto, Timestamp ahora) {
+        return new Object[] {
+                dto.getCodigoBarras(), dto.getNombre(), dto.getDescripcion(), dto.getPrecio(),
+                dto.getStockActual(), dto.getStockMinimo(), dto.getIdCategoria(), dto.getImagenPrincipal(),
+                aJson(dto.getImagenesAdicionales()), dto.getRequiereReceta(), dto.getEsControlado(),
+                dto.getFechaVencimiento() != null ? Date.valueOf(dto.getFechaVencimiento()) : null,
+                dto.getLaboratorio(), dto.getPrincipioActivo(), dto.getConcentracion(),
+                dto.getFormaFarmaceutica(), dto.getEstado(), ahora
+        };
+    }
+
+    private String aJson(List<String> valores) {
+        if (valores == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(valores);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ProductoDTO desdeCsv(String[] cabecera, String linea) {
+        List<String> valores = parsearCsv(linea);
+        Map<String, Object> campos = new LinkedHashMap<>();
+        for (int i = 0; i < cabecera.length && i < valores.size(); i++) {
+            String valor = valores.get(i).trim();
+            if (valor.isEmpty()) {
+                continue;
+            }
+            if ("imagenesAdicionales".equals(cabecera[i])) {
+                campos.put(cabecera[i], Arrays.stream(valor.split("\\|")).map(String::trim).toList());
+            } else {
+                campos.put(cabecera[i], valor);
+            }
+        }
+        return objectMapper.convertValue(campos, ProductoDTO.class);
+    }
+
+    /**
+     * Separa una línea CSV por comas respetando comillas dobles ("" dentro de comillas es una comilla).
+     *
+     * La entrada se lee con {@code readLine}, así que cada línea es una fila: no se admiten campos
+     * entre comillas que contengan saltos de línea. Una comilla sin cerrar toma el resto de la línea
+     * como parte del campo.
+     */
+    static List<String> parsearCsv(String linea) {
+        List<String> valores = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                valores.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        valores.add(actual.toString());
+        return valores;
+    }
+
+    private record Fila(int linea, ProductoDTO dto) {
+    }
+
+    /**
+     * @param linea         número de línea del archivo (contando la cabecera en CSV)
+     * @param codigoBarras  código de la fila, si se pudo leer
+     * @param mensajes      motivos por los que la fila no se importó
+     */
+    public record ErrorFila(int linea, String codigoBarras, List<String> mensajes) {
+    }
+
+    /**
+     * @param procesadas filas leídas (sin cabecera ni líneas vacías)
+     * @param importadas filas insertadas o actualizadas
+     * @param errores    filas rechazadas con su motivo
+     */
+    public record Resultado(int procesadas, int importadas, List<ErrorFila> errores) {
+    }
+}
@@ -0,0 +1,275 @@
+package com.proyectouno.demo.service;
+
+import com.proyectouno.demo.DTO.ProductoDTO;
+import com.proyectouno.demo.repository.DetalleReservaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trie en memoria para autocompletar nombres de productos y principios activos.
+ *
+ * Cada nodo guarda ya calculados los {@value #TOP_N} productos más populares de su subárbol,
+ * así que una sugerencia es solo recorrer el prefijo (sin explorar el subárbol). La popularidad
+ * es la cantidad de unidades reservadas de cada producto.
+ *
+ * Para acotar la memoria los términos se recortan a {@value #MAX_LARGO_TERMINO} caracteres y los
+ * hijos se guardan en arreglos ordenados en lugar de mapas. Se actualiza de forma incremental
+ * con {@link CatalogoRecargadoEvent}: solo se recalculan los nodos del camino de cada término.
+ */
+@Service
+public class ProductoSugerenciasTrie {
+
+    static final int TOP_N = 10;
+    static final int MAX_LARGO_TERMINO = 32;
+
+    private static final long[] VACIO = new long[0];
+
+    @Autowired
+    private DetalleReservaRepository detalleReservaRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Nodo raiz = new Nodo();
+    private final Map<Long, Set<String>> terminosPorProducto = new HashMap<>();
+    private final Map<Long, Long> popularidad = new HashMap<>();
+
+    @EventListener
+    public void onCatalogoRecargado(CatalogoRecargadoEvent event) {
+        // Las consultas de popularidad se hacen antes de tomar el candado
+        Map<Long, Long> nuevaPopularidad = new HashMap<>();
+        List<Object[]> sumas = event.isCompleto()
+                ? detalleReservaRepository.sumCantidadPorProducto()
+                : event.getActualizados().isEmpty()
+                        ? List.of()
+                        : detalleReservaRepository.sumCantidadPorProducto(
+                                event.getActualizados().stream().map(ProductoDTO::getIdProducto).toList());
+        for (Object[] fila : sumas) {
+            nuevaPopularidad.put((Long) fila[0], ((Number) fila[1]).longValue());
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (event.isCompleto()) {
+                raiz = new Nodo();
+                terminosPorProducto.clear();
+                popularidad.clear();
+            }
+            event.getEliminados().forEach(this::quitar);
+            for (ProductoDTO producto : event.getActualizados()) {
+                quitar(producto.getIdProducto());
+                popularidad.put(producto.getIdProducto(), nuevaPopularidad.getOrDefault(producto.getIdProducto(), 0L));
+                agregar(producto);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve hasta {@code limite} ids de productos cuyo nombre (o alguna de sus palabras)
+     * o principio activo empieza con el prefijo, ordenados por popularidad (como mucho {@value #TOP_N}).
+     */
+    public List<Long> sugerir(String prefijo, int limite) {
+        String normalizado = TextoNormalizador.normalizar(prefijo);
+        if (normalizado.isEmpty()) {
+            return List.of();
+        }
+        if (normalizado.length() > MAX_LARGO_TERMINO) {
+            normalizado = normalizado.substring(0, MAX_LARGO_TERMINO);
+        }
+        lock.readLock().lock();
+        try {
+            Nodo nodo = raiz;
+            for (int i = 0; i < normalizado.length() && nodo != null; i++) {
+                nodo = nodo.hijo(normalizado.charAt(i));
+            }
+            if (nodo == null) {
+                return List.of();
+            }
+            // Un límite negativo no debe llegar al ArrayList; el máximo lo da el top del nodo
+            int n = Math.max(0, Math.min(limite, nodo.top.length));
+            List<Long> ids = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                ids.add(nodo.top[i]);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void agregar(ProductoDTO producto) {
+        Set<String> terminos = terminosDe(producto);
+        terminosPorProducto.put(producto.getIdProducto(), terminos);
+        for (String termino : terminos) {
+            insertar(termino, producto.getIdProducto());
+        }
+    }
+
+    private void quitar(Long idProducto) {
+        Set<String> terminos = terminosPorProducto.remove(idProducto);
+        if (terminos != null) {
+            for (String termino : terminos) {
+                eliminar(termino, idProducto);
+            }
+        }
+        popularidad.remove(idProducto);
+    }
+
+    /**
+     * Términos a indexar: el nombre completo, el nombre desde cada una de sus palabras
+     * (para que "ibu" encuentre "Advil Ibuprofeno") y el principio activo.
+     */
+    private static Set<String> terminosDe(ProductoDTO producto) {
+        Set<String> terminos = new LinkedHashSet<>();
+        String nombre = TextoNormalizador.normalizar(producto.getNombre());
+        for (int i = 0; i < nombre.length(); i++) {
+            if (i == 0 || nombre.charAt(i - 1) == ' ') {
+                terminos.add(recortar(nombre.substring(i)));
+            }
+        }
+        String principioActivo = TextoNormalizador.normalizar(producto.getPrincipioActivo());
+        if (!principioActivo.isEmpty()) {
+            terminos.add(recortar(principioActivo));
+        }
+        terminos.remove("");
+        return terminos;
+    }
+
+    private static String recortar(String termino) {
+        return termino.length() > MAX_LARGO_TERMINO ? termino.substring(0, MAX_LARGO_TERMINO) : termino;
+    }
+
+    private void insertar(String termino, long idProducto) {
+        Nodo[] camino = new Nodo[termino.length() + 1];
+        camino[0] = raiz;
+        for (int i = 0; i < termino.length(); i++) {
+            camino[i + 1] = camino[i].hijoOCrear(termino.charAt(i));
+        }
+        camino[termino.length()].agregarTerminal(idProducto);
+        for (int i = termino.length(); i >= 0; i--) {
+            recalcularTop(camino[i]);
+        }
+    }
+
+    private void eliminar(String termino, long idProducto) {
+        Nodo[] camino = new Nodo[termino.length() + 1];
+        camino[0] = raiz;
+        for (int i = 0; i < termino.length(); i++) {
+            camino[i + 1] = camino[i].hijo(termino.charAt(i));
+            if (camino[i + 1] == null) {
+                return;
+            }
+        }
+        camino[termino.length()].quitarTerminal(idProducto);
+        for (int i = termino.length(); i >= 0; i--) {
+            Nodo nodo = camino[i];
+            // Se podan los nodos que quedaron vacíos
+            if (i > 0 && nodo.terminales.length == 0 && nodo.letras.length == 0) {
+                camino[i - 1].quitarHijo(termino.charAt(i - 1));
+            } else {
+                recalcularTop(nodo);
+            }
+        }
+    }
+
+    /**
+     * El top de un nodo sale de sus propios productos y del top de cada hijo.
+     */
+    private void recalcularTop(Nodo nodo) {
+        Set<Long> candidatos = new LinkedHashSet<>();
+        for (long id : nodo.terminales) {
+            candidatos.add(id);
+        }
+        for (Nodo hijo : nodo.hijos) {
+            for (long id : hijo.top) {
+                candidatos.add(id);
+            }
+        }
+        nodo.top = candidatos.stream()
+                .sorted((a, b) -> {
+                    int cmp = Long.compare(popularidad.getOrDefault(b, 0L), popularidad.getOrDefault(a, 0L));
+                    return cmp != 0 ? cmp : Long.compare(a, b);
+                })
+                .limit(TOP_N)
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    private static final class Nodo {
+        char[] letras = new char[0];
+        Nodo[] hijos = new Nodo[0];
+        long[] terminales = VACIO;
+        long[] top = VACIO;
+
+        Nodo hijo(char c) {
+            int i = Arrays.binarySearch(letras, c);
+            return i >= 0 ? hijos[i] : null;
+        }
+
+        Nodo hijoOCrear(char c) {
+            int i = Arrays.binarySearch(letras, c);
+            if (i >= 0) {
+                return hijos[i];
+            }
+            int pos = -i - 1;
+            char[] nuevasLetras = new char[letras.length + 1];
+            Nodo[] nuevosHijos = new Nodo[hijos.length + 1];
+            System.arraycopy(letras, 0, nuevasLetras, 0, pos);
+            System.arraycopy(hijos, 0, nuevosHijos, 0, pos);
+            nuevasLetras[pos] = c;
+            nuevosHijos[pos] = new Nodo();
+            System.arraycopy(letras, pos, nuevasLetras, pos + 1, letras.length - pos);
+            System.arraycopy(hijos, pos, nuevosHijos, pos + 1, hijos.length - pos);
+            letras = nuevasLetras;
+            hijos = nuevosHijos;
+            return nuevosHijos[pos];
+        }
+
+        void quitarHijo(char c) {
+            int pos = Arrays.binarySearch(letras, c);
+            if (pos < 0) {
+                return;
+            }
+            char[] nuevasLetras = new char[letras.length - 1];
+            Nodo[] nuevosHijos = new Nodo[hijos.length - 1];
+            System.arraycopy(letras, 0, nuevasLetras, 0, pos);
+            System.arraycopy(hijos, 0, nuevosHijos, 0, pos);
+            System.arraycopy(letras, pos + 1, nuevasLetras, pos, letras.length - pos - 1);
+            System.arraycopy(hijos, pos + 1, nuevosHijos, pos, hijos.length - pos - 1);
+            letras = nuevasLetras;
+            hijos = nuevosHijos;
+        }
+
+        void agregarTerminal(long id) {
+            for (long t : terminales) {
+                if (t == id) {
+                    return;
+                }
+            }
+            terminales = Arrays.copyOf(terminales, terminales.length + 1);
+            terminales[terminales.length - 1] = id;
+        }
+
+        void quitarTerminal(long id) {
+            for (int i = 0; i < terminales.length; i++) {
+                if (terminales[i] == id) {
+                    long[] nuevos = new long[terminales.length - 1];
+                    System.arraycopy(terminales, 0, nuevos, 0, i);
+                    System.arraycopy(terminales, i + 1, nuevos, i, terminales.length - i - 1);
+                    terminales = nuevos.length == 0 ? VACIO : nuevos;
+                    return;
+                }
+            }
+        }
+    }
+}
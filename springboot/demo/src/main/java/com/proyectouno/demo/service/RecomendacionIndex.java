@@ -0,0 +1,187 @@
+package com.proyectouno.demo.service;
+
+import com.proyectouno.demo.DTO.ProductoDTO;
+import com.proyectouno.demo.repository.ProductoSintomaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice en memoria síntoma → productos recomendados, ya ordenados.
+ *
+ * El puntaje de un producto para un síntoma es la relevancia del vínculo (1-5) multiplicada por
+ * un factor de stock: los productos agotados quedan al final y los que están por debajo del stock
+ * mínimo se penalizan. Los productos inactivos no se recomiendan.
+ *
+ * Los rankings se precalculan por síntoma y se publican como arreglos inmutables, así que las
+ * lecturas no toman candados. Se recalculan solo los síntomas afectados: al cambiar sus vínculos
+ * ({@link SintomasCambiadosEvent}) o al cambiar el stock o el estado de alguno de sus productos
+ * ({@link CatalogoRecargadoEvent}). Las consultas de varios síntomas combinan los rankings en memoria.
+ */
+@Service
+public class RecomendacionIndex {
+
+    private static final double FACTOR_AGOTADO = 0.1;
+    private static final double FACTOR_STOCK_BAJO = 0.7;
+
+    @Autowired
+    private ProductoSintomaRepository productoSintomaRepository;
+
+    @Autowired
+    private CatalogoEnMemoria catalogoEnMemoria;
+
+    // Estado de los escritores (protegido por el monitor del índice)
+    private final Map<Long, Map<Long, Integer>> relevancias = new HashMap<>();
+    private final Map<Long, Set<Long>> sintomasPorProducto = new HashMap<>();
+
+    // Lo que leen las consultas: rankings inmutables por síntoma
+    private final Map<Long, Recomendacion[]> rankings = new ConcurrentHashMap<>();
+
+    @EventListener
+    public synchronized void onCatalogoRecargado(CatalogoRecargadoEvent event) {
+        if (event.isCompleto()) {
+            recargarTodo();
+            return;
+        }
+        Set<Long> afectados = new HashSet<>();
+        event.getEliminados().forEach(id -> afectados.addAll(sintomasPorProducto.getOrDefault(id, Set.of())));
+        event.getActualizados().forEach(p ->
+                afectados.addAll(sintomasPorProducto.getOrDefault(p.getIdProducto(), Set.of())));
+        afectados.forEach(this::recalcular);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onSintomasCambiados(SintomasCambiadosEvent event) {
+        if (event.isTodo()) {
+            recargarTodo();
+            return;
+        }
+        for (Long idSintoma : event.getIdsSintomas()) {
+            quitarVinculos(idSintoma);
+        }
+        agregarVinculos(productoSintomaRepository.findVinculosBySintomaIn(event.getIdsSintomas()));
+        event.getIdsSintomas().forEach(this::recalcular);
+    }
+
+    /**
+     * Productos recomendados para un síntoma, del más al menos recomendado.
+     */
+    public List<Recomendacion> porSintoma(Long idSintoma, int limite) {
+        Recomendacion[] ranking = rankings.getOrDefault(idSintoma, new Recomendacion[0]);
+        return Arrays.asList(ranking).subList(0, Math.min(limite, ranking.length));
+    }
+
+    /**
+     * Combina los rankings de varios síntomas: primero los productos que cubren más síntomas y,
+     * a igual cobertura, los de mayor puntaje acumulado.
+     */
+    public List<Combinada> porSintomas(Collection<Long> idsSintomas, int limite) {
+        Map<Long, Combinada> acumulado = new HashMap<>();
+        for (Long idSintoma : new LinkedHashSet<>(idsSintomas)) {
+            for (Recomendacion r : rankings.getOrDefault(idSintoma, new Recomendacion[0])) {
+                acumulado.merge(r.idProducto(), new Combinada(r.idProducto(), r.puntaje(), 1),
+                        (a, b) -> new Combinada(a.idProducto(), a.puntaje() + b.puntaje(),
+                                a.sintomasCubiertos() + b.sintomasCubiertos()));
+            }
+        }
+        return acumulado.values().stream()
+                .sorted(Comparator.comparingInt(Combinada::sintomasCubiertos).reversed()
+                        .thenComparing(Comparator.comparingDouble(Combinada::puntaje).reversed())
+                        .thenComparing(Combinada::idProducto))
+                .limit(limite)
+                .toList();
+    }
+
+    private void recargarTodo() {
+        relevancias.clear();
+        sintomasPorProducto.clear();
+        agregarVinculos(productoSintomaRepository.findVinculos());
+        rankings.keySet().retainAll(relevancias.keySet());
+        relevancias.keySet().forEach(this::recalcular);
+    }
+
+    private void agregarVinculos(List<Object[]> filas) {
+        for (Object[] fila : filas) {
+            Long idSintoma = (Long) fila[0];
+            Long idProducto = (Long) fila[1];
+            relevancias.computeIfAbsent(idSintoma, k -> new HashMap<>()).put(idProducto, (Integer) fila[2]);
+            sintomasPorProducto.computeIfAbsent(idProducto, k -> new HashSet<>()).add(idSintoma);
+        }
+    }
+
+    private void quitarVinculos(Long idSintoma) {
+        Map<Long, Integer> productos = relevancias.remove(idSintoma);
+        if (productos == null) {
+            return;
+        }
+        for (Long idProducto : productos.keySet()) {
+            Set<Long> sintomas = sintomasPorProducto.get(idProducto);
+            if (sintomas != null) {
+                sintomas.remove(idSintoma);
+                if (sintomas.isEmpty()) {
+                    sintomasPorProducto.remove(idProducto);
+                }
+            }
+        }
+    }
+
+    private void recalcular(Long idSintoma) {
+        Map<Long, Integer> productos = relevancias.get(idSintoma);
+        if (productos == null || productos.isEmpty()) {
+            rankings.remove(idSintoma);
+            return;
+        }
+        List<Recomendacion> ranking = new ArrayList<>(productos.size());
+        for (Map.Entry<Long, Integer> vinculo : productos.entrySet()) {
+            ProductoDTO producto = catalogoEnMemoria.get(vinculo.getKey());
+            if (producto == null || !Boolean.TRUE.equals(producto.getEstado())) {
+                continue;
+            }
+            ranking.add(new Recomendacion(vinculo.getKey(), vinculo.getValue(),
+                    vinculo.getValue() * factorStock(producto)));
+        }
+        ranking.sort(Comparator.comparingDouble(Recomendacion::puntaje).reversed()
+                .thenComparing(Recomendacion::idProducto));
+        rankings.put(idSintoma, ranking.toArray(new Recomendacion[0]));
+    }
+
+    private static double factorStock(ProductoDTO producto) {
+        int stock = producto.getStockActual() != null ? producto.getStockActual() : 0;
+        int minimo = producto.getStockMinimo() != null ? producto.getStockMinimo() : 0;
+        if (stock <= 0) {
+            return FACTOR_AGOTADO;
+        }
+        return stock < minimo ? FACTOR_STOCK_BAJO : 1.0;
+    }
+
+    /**
+     * Producto recomendado para un síntoma.
+     *
+     * @param relevancia relevancia del vínculo (1-5)
+     * @param puntaje    relevancia ponderada por stock
+     */
+    public record Recomendacion(Long idProducto, int relevancia, double puntaje) {
+    }
+
+    /**
+     * Producto recomendado para un conjunto de síntomas.
+     *
+     * @param puntaje           suma de los puntajes en cada síntoma
+     * @param sintomasCubiertos cantidad de síntomas consultados con los que está vinculado
+     */
+    public record Combinada(Long idProducto, double puntaje, int sintomasCubiertos) {
+    }
+}
@@ -0,0 +1,192 @@
+package com.proyectouno.demo.service;
+
+import com.proyectouno.demo.DTO.ProductoDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Responde sin llamar al LLM las consultas más comunes del chat, usando solo los índices en memoria:
+ * <ul>
+ *   <li>Precio o stock de un producto nombrado ("¿cuánto cuesta el paracetamol?").</li>
+ *   <li>Si un producto requiere receta ({@code requiereReceta}).</li>
+ *   <li>Productos para los síntomas mencionados ({@link DetectorSintomas} + {@link RecomendacionIndex}).</li>
+ * </ul>
+ * Las respuestas a preguntas cortas sobre un producto concreto son "directas": son exactas y
+ * pueden darse antes de consultar al LLM. Las de síntomas solo se usan como respaldo cuando el
+ * LLM no está disponible.
+ */
+@Service
+public class RespuestasLocales {
+
+    private static final int RECOMENDACIONES_MAXIMAS = 5;
+    private static final int CANDIDATOS_BUSQUEDA = 3;
+    // Preguntas más largas suelen pedir algo más que el dato ("¿tienen paracetamol y cómo se toma?")
+    private static final int MAX_PALABRAS_DIRECTA = 5;
+
+    private static final Set<String> PALABRAS_PRECIO = Set.of(
+            "precio", "precios", "cuesta", "cuestan", "cuanto", "cuanta", "vale", "valen", "costo", "cobran");
+    private static final Set<String> PALABRAS_STOCK = Set.of(
+            "stock", "tienen", "hay", "disponible", "disponibles", "queda", "quedan", "venden", "unidades");
+
+    private static final String AVISO_MEDICO =
+            "Estas son sugerencias generales: consulta con un médico o con nuestro químico farmacéutico " +
+            "antes de tomar cualquier medicamento.";
+
+    @Autowired
+    private ProductoBusquedaIndex busquedaIndex;
+
+    @Autowired
+    private CatalogoEnMemoria catalogoEnMemoria;
+
+    @Autowired
+    private DetectorSintomas detectorSintomas;
+
+    @Autowired
+    private RecomendacionIndex recomendacionIndex;
+
+    private final Map<Intencion, AtomicLong> usadas = new EnumMap<>(Intencion.class);
+    private final AtomicLong primeraPasada = new AtomicLong();
+    private final AtomicLong respaldo = new AtomicLong();
+
+    public RespuestasLocales() {
+        for (Intencion intencion : Intencion.values()) {
+            usadas.put(intencion, new AtomicLong());
+        }
+    }
+
+    /**
+     * Intenta responder el mensaje localmente; vacío si no se reconoce ninguna intención.
+     */
+    public Optional<Respuesta> responder(String mensaje) {
+        return responderProducto(mensaje).or(() -> responderSintomas(mensaje));
+    }
+
+    /**
+     * Registra que la respuesta se envió al cliente, antes de consultar al LLM o como respaldo
+     * porque el LLM falló.
+     */
+    public void registrarUso(Respuesta respuesta, boolean comoRespaldo) {
+        usadas.get(respuesta.intencion()).incrementAndGet();
+        (comoRespaldo ? respaldo : primeraPasada).incrementAndGet();
+    }
+
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("primeraPasada", primeraPasada.get());
+        stats.put("respaldo", respaldo.get());
+        usadas.forEach((intencion, n) -> stats.put(intencion.name().toLowerCase(), n.get()));
+        return stats;
+    }
+
+    private Optional<Respuesta> responderProducto(String mensaje) {
+        // Sin quitar palabras vacías: "hay" es una de ellas y aquí indica la intención
+        List<String> palabras = List.of(TextoNormalizador.normalizar(mensaje).split(" "));
+        boolean receta = palabras.stream().anyMatch(p -> p.startsWith("recet"));
+        boolean precio = palabras.stream().anyMatch(PALABRAS_PRECIO::contains);
+        boolean stock = palabras.stream().anyMatch(PALABRAS_STOCK::contains);
+        if (!receta && !precio && !stock) {
+            return Optional.empty();
+        }
+        ProductoDTO producto = productoNombrado(mensaje);
+        if (producto == null) {
+            return Optional.empty();
+        }
+
+        boolean directa = TextoNormalizador.palabras(mensaje).size() <= MAX_PALABRAS_DIRECTA;
+        StringBuilder texto = new StringBuilder();
+        if (receta) {
+            texto.append(producto.getNombre())
+                 .append(Boolean.TRUE.equals(producto.getRequiereReceta())
+                         ? " requiere receta médica; deberás presentarla al momento de la compra."
+                         : " no requiere receta médica.");
+            if (Boolean.TRUE.equals(producto.getEsControlado())) {
+                texto.append(" Es un medicamento controlado.");
+            }
+            if (precio || stock) {
+                texto.append(' ').append(disponibilidad(producto));
+            }
+            return Optional.of(new Respuesta(Intencion.RECETA, texto.toString(), directa));
+        }
+        texto.append(disponibilidad(producto));
+        if (Boolean.TRUE.equals(producto.getRequiereReceta())) {
+            texto.append(" Requiere receta médica.");
+        }
+        return Optional.of(new Respuesta(precio ? Intencion.PRECIO : Intencion.STOCK, texto.toString(), directa));
+    }
+
+    private Optional<Respuesta> responderSintomas(String mensaje) {
+        List<DetectorSintomas.Coincidencia> sintomas = detectorSintomas.detectar(mensaje);
+        if (sintomas.isEmpty()) {
+            return Optional.empty();
+        }
+        List<Long> ids = sintomas.stream().map(DetectorSintomas.Coincidencia::idSintoma).toList();
+        StringBuilder texto = new StringBuilder("Para ")
+                .append(sintomas.stream().map(DetectorSintomas.Coincidencia::nombre).collect(Collectors.joining(", ")))
+                .append(" te podemos ofrecer:\n");
+        int agregados = 0;
+        for (RecomendacionIndex.Combinada r : recomendacionIndex.porSintomas(ids, RECOMENDACIONES_MAXIMAS)) {
+            ProductoDTO producto = catalogoEnMemoria.get(r.idProducto());
+            if (producto != null && producto.getStockActual() != null && producto.getStockActual() > 0) {
+                texto.append("• ").append(producto.getNombre())
+                     .append(" - S/ ").append(producto.getPrecio())
+                     .append(Boolean.TRUE.equals(producto.getRequiereReceta()) ? " (requiere receta)" : "")
+                     .append("\n");
+                agregados++;
+            }
+        }
+        if (agregados == 0) {
+            return Optional.empty();
+        }
+        texto.append(AVISO_MEDICO);
+        return Optional.of(new Respuesta(Intencion.SINTOMA, texto.toString(), false));
+    }
+
+    /**
+     * Producto activo que el mensaje nombra: entre los mejores resultados de búsqueda, el primero
+     * cuya primera palabra del nombre aparece en el mensaje. Así "¿tienen paracetamol?" encuentra
+     * "Paracetamol 500 mg", pero una coincidencia solo en la descripción no cuenta.
+     */
+    private ProductoDTO productoNombrado(String mensaje) {
+        List<String> terminosMensaje = TextoNormalizador.terminos(mensaje);
+        for (ProductoBusquedaIndex.Resultado resultado : busquedaIndex.buscar(mensaje, CANDIDATOS_BUSQUEDA)) {
+            ProductoDTO producto = catalogoEnMemoria.get(resultado.idProducto());
+            if (producto == null || Boolean.FALSE.equals(producto.getEstado())) {
+                continue;
+            }
+            List<String> terminosNombre = TextoNormalizador.terminos(producto.getNombre());
+            if (!terminosNombre.isEmpty() && terminosMensaje.contains(terminosNombre.get(0))) {
+                return producto;
+            }
+        }
+        return null;
+    }
+
+    private static String disponibilidad(ProductoDTO producto) {
+        int stock = producto.getStockActual() == null ? 0 : producto.getStockActual();
+        if (stock <= 0) {
+            return "Por ahora " + producto.getNombre() + " está agotado (precio: S/ " + producto.getPrecio() + ").";
+        }
+        return "Sí, tenemos " + producto.getNombre() + " a S/ " + producto.getPrecio()
+                + " (" + stock + (stock == 1 ? " unidad disponible)." : " unidades disponibles).");
+    }
+
+    public enum Intencion { PRECIO, STOCK, RECETA, SINTOMA }
+
+    /**
+     * Respuesta generada localmente.
+     *
+     * @param directa true si responde exactamente lo preguntado sobre un producto y puede usarse
+     *                sin consultar al LLM
+     */
+    public record Respuesta(Intencion intencion, String texto, boolean directa) {
+    }
+}
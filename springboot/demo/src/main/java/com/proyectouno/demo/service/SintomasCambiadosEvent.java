@@ -0,0 +1,36 @@
+package com.proyectouno.demo.service;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Evento publicado cuando cambian síntomas o sus vínculos con productos
+ * (alta, edición o baja de un síntoma, o de un vínculo producto-síntoma).
+ *
+ * Si {@code todo} es true se deben recargar todos los síntomas y {@code idsSintomas} se ignora.
+ */
+public class SintomasCambiadosEvent {
+
+    private final Set<Long> idsSintomas;
+    private final boolean todo;
+
+    private SintomasCambiadosEvent(Set<Long> idsSintomas, boolean todo) {
+        this.idsSintomas = idsSintomas;
+        this.todo = todo;
+    }
+
+    public static SintomasCambiadosEvent sintomas(Collection<Long> idsSintomas) {
+        return new SintomasCambiadosEvent(Set.copyOf(idsSintomas), false);
+    }
+
+    public static SintomasCambiadosEvent sintoma(Long idSintoma) {
+        return new SintomasCambiadosEvent(Set.of(idSintoma), false);
+    }
+
+    public static SintomasCambiadosEvent todo() {
+        return new SintomasCambiadosEvent(Set.of(), true);
+    }
+
+    public Set<Long> getIdsSintomas() { return idsSintomas; }
+    public boolean isTodo() { return todo; }
+}
@@ -0,0 +1,92 @@
+package com.proyectouno.demo.service;
+
+import com.proyectouno.demo.exceptions.StockInsuficienteException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Cambios de stock atómicos en la base de datos.
+ *
+ * Cada línea se descuenta con un UPDATE condicionado ({@code ... WHERE stock_actual >= ?}): la
+ * comprobación y el descuento ocurren en la misma sentencia, sobre la fila ya bloqueada por el
+ * UPDATE, así que dos reservas simultáneas no pueden vender las mismas unidades y el stock nunca
+ * queda negativo. No hace falta leer ni bloquear los productos antes.
+ *
+ * Las líneas de una reserva se envían en un solo batch, ordenadas por producto para que dos
+ * reservas bloqueen las filas siempre en el mismo orden y no se produzcan deadlocks.
+ *
+ * Debe llamarse dentro de la transacción de la reserva: si alguna línea falla, las demás ya se
+ * descontaron y quien llama debe hacer rollback.
+ */
+@Service
+public class StockService {
+
+    private static final String DESCONTAR =
+            "UPDATE productos SET stock_actual = stock_actual - ? WHERE id_producto = ? AND stock_actual >= ?";
+    private static final String DEVOLVER =
+            "UPDATE productos SET stock_actual = stock_actual + ? WHERE id_producto = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Descuenta las cantidades de cada línea.
+     *
+     * @param lineas una por línea de la reserva; puede haber varias del mismo producto
+     * @throws StockInsuficienteException con exactamente las líneas que no se pudieron descontar
+     */
+    public void descontar(List<Linea> lineas) {
+        if (lineas.isEmpty()) {
+            return;
+        }
+        // Posiciones de las líneas en orden de producto (estable: mismas posiciones, mismo orden)
+        List<Integer> orden = IntStream.range(0, lineas.size()).boxed()
+                .sorted(Comparator.comparing(i -> lineas.get(i).idProducto()))
+                .collect(Collectors.toList());
+        List<Object[]> filas = new ArrayList<>(lineas.size());
+        for (int i : orden) {
+            Linea linea = lineas.get(i);
+            filas.add(new Object[]{linea.cantidad(), linea.idProducto(), linea.cantidad()});
+        }
+        int[] actualizadas = jdbcTemplate.batchUpdate(DESCONTAR, filas);
+
+        List<StockInsuficienteException.LineaSinStock> fallidas = new ArrayList<>();
+        for (int j = 0; j < actualizadas.length; j++) {
+            if (actualizadas[j] == 0) {
+                int i = orden.get(j);
+                fallidas.add(new StockInsuficienteException.LineaSinStock(
+                        i, lineas.get(i).idProducto(), lineas.get(i).cantidad()));
+            }
+        }
+        if (!fallidas.isEmpty()) {
+            fallidas.sort(Comparator.comparingInt(StockInsuficienteException.LineaSinStock::linea));
+            throw new StockInsuficienteException("Stock insuficiente para " + fallidas.size()
+                    + (fallidas.size() == 1 ? " producto de la reserva" : " productos de la reserva"), fallidas);
+        }
+    }
+
+    /**
+     * Devuelve al stock las cantidades indicadas por producto (cancelación o cambio de una reserva).
+     */
+    public void devolver(Map<Long, Integer> cantidades) {
+        if (cantidades.isEmpty()) {
+            return;
+        }
+        List<Object[]> filas = cantidades.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> new Object[]{e.getValue(), e.getKey()})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(DEVOLVER, filas);
+    }
+
+    public record Linea(Long idProducto, int cantidad) {
+    }
+}
@@ -0,0 +1,94 @@
+package com.proyectouno.demo.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Utilidades de normalización de texto en español para búsquedas:
+ * minúsculas, sin tildes ni signos, sin palabras vacías y con una
+ * reducción ligera de plurales y terminaciones de género.
+ */
+public final class TextoNormalizador {
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern NO_ALFANUMERICO = Pattern.compile("[^a-z0-9]+");
+
+    /** Palabras vacías del español que no aportan a la búsqueda. */
+    public static final Set<String> PALABRAS_VACIAS = Set.of(
+            "a", "al", "algo", "ante", "con", "como", "cual", "cuando", "de", "del", "desde", "donde",
+            "e", "el", "ella", "en", "entre", "es", "esa", "ese", "esta", "este", "esto", "hay", "la",
+            "las", "le", "les", "lo", "los", "me", "mi", "mis", "muy", "ni", "no", "o", "os", "para",
+            "pero", "por", "que", "se", "si", "sin", "sobre", "su", "sus", "te", "tu", "un", "una",
+            "uno", "unos", "unas", "y", "ya", "yo");
+
+    private TextoNormalizador() {
+    }
+
+    /**
+     * Pasa a minúsculas, quita tildes y reemplaza todo lo que no sea letra o número por espacios.
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinTildes = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto.toLowerCase(), Normalizer.Form.NFD))
+                .replaceAll("");
+        return NO_ALFANUMERICO.matcher(sinTildes).replaceAll(" ").trim();
+    }
+
+    /**
+     * Normaliza y separa en palabras, descartando palabras vacías.
+     */
+    public static List<String> palabras(String texto) {
+        List<String> resultado = new ArrayList<>();
+        String normalizado = normalizar(texto);
+        if (normalizado.isEmpty()) {
+            return resultado;
+        }
+        for (String palabra : normalizado.split(" ")) {
+            if (!palabra.isEmpty() && !PALABRAS_VACIAS.contains(palabra)) {
+                resultado.add(palabra);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Normaliza, separa en palabras y reduce cada una a su raíz.
+     */
+    public static List<String> terminos(String texto) {
+        List<String> resultado = palabras(texto);
+        resultado.replaceAll(TextoNormalizador::raiz);
+        return resultado;
+    }
+
+    /**
+     * Reducción ligera para español: quita plurales y la vocal final de género,
+     * de forma que "jarabe"/"jarabes" o "tableta"/"tabletas" comparten raíz.
+     * La palabra debe venir ya normalizada.
+     */
+    public static String raiz(String palabra) {
+        String p = palabra;
+        if (p.length() <= 3 || Character.isDigit(p.charAt(p.length() - 1))) {
+            return p;
+        }
+        if (p.length() > 4 && p.endsWith("ces")) {
+            p = p.substring(0, p.length() - 3) + "z";
+        } else if (p.length() > 4 && p.endsWith("es") && !esVocal(p.charAt(p.length() - 3))) {
+            p = p.substring(0, p.length() - 2);
+        } else if (p.endsWith("s")) {
+            p = p.substring(0, p.length() - 1);
+        }
+        if (p.length() > 4 && (p.endsWith("a") || p.endsWith("o") || p.endsWith("e"))) {
+            p = p.substring(0, p.length() - 1);
+        }
+        return p;
+    }
+
+    private static boolean esVocal(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+    }
+}
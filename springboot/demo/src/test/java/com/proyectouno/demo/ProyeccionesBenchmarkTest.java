@@ -0,0 +1,110 @@
+package com.proyectouno.demo;
+
+import com.proyectouno.demo.DTO.ProductoDTO;
+import com.proyectouno.demo.repository.ProductoRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compara el listado de productos cargando entidades (y copiándolas a DTO) contra la
+ * proyección {@code SELECT new ProductoDTO(...)} sobre 50.000 filas.
+ *
+ * Es opcional porque inserta datos y tarda: se ejecuta con {@code mvn test -Dbenchmark=true}.
+ * Los datos se insertan dentro de la transacción del test y se descartan con el rollback.
+ */
+@SpringBootTest
+@Transactional
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProyeccionesBenchmarkTest {
+
+    private static final int FILAS = 50_000;
+    private static final int CALENTAMIENTO = 3;
+    private static final int MEDICIONES = 5;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void proyeccionVsEntidades() {
+        insertarProductos();
+
+        int base = productoRepository.findAllDTO().size();
+        Medicion entidades = medir(() -> {
+            List<ProductoDTO> dtos = productoRepository.findAllWithCategoria().stream()
+                    .map(ProductoDTO::new)
+                    .collect(Collectors.toList());
+            // Incluye el dirty checking que haría el commit de una transacción normal
+            entityManager.flush();
+            return dtos;
+        });
+        Medicion proyeccion = medir(() -> productoRepository.findAllDTO());
+
+        assertEquals(base, entidades.filas);
+        assertEquals(base, proyeccion.filas);
+        System.out.printf("Entidades + DTO : %6d ms, %8d KB asignados (%d filas)%n",
+                entidades.milis, entidades.bytes / 1024, entidades.filas);
+        System.out.printf("Proyección JPQL : %6d ms, %8d KB asignados (%d filas)%n",
+                proyeccion.milis, proyeccion.bytes / 1024, proyeccion.filas);
+    }
+
+    private void insertarProductos() {
+        jdbcTemplate.update("INSERT INTO categorias (nombre, estado, fecha_creacion) VALUES ('Benchmark', true, now())");
+        Long idCategoria = jdbcTemplate.queryForObject(
+                "SELECT MAX(id_categoria) FROM categorias WHERE nombre = 'Benchmark'", Long.class);
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> filas = new ArrayList<>(FILAS);
+        for (int i = 0; i < FILAS; i++) {
+            filas.add(new Object[]{"BENCH-" + i, "Producto benchmark " + i, new BigDecimal("9.90"), 100, 5,
+                    idCategoria, "Laboratorio " + (i % 50), ahora});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO productos (codigo_barras, nombre, precio, stock_actual, stock_minimo, " +
+                "id_categoria, requiere_receta, es_controlado, laboratorio, estado, fecha_creacion) " +
+                "VALUES (?, ?, ?, ?, ?, ?, false, false, ?, true, ?)", filas);
+    }
+
+    private Medicion medir(Supplier<List<ProductoDTO>> consulta) {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long hilo = Thread.currentThread().threadId();
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            consulta.get();
+            entityManager.clear();
+        }
+        long bytes = 0;
+        long nanos = 0;
+        int filas = 0;
+        for (int i = 0; i < MEDICIONES; i++) {
+            long bytesAntes = mx.getThreadAllocatedBytes(hilo);
+            long inicio = System.nanoTime();
+            filas = consulta.get().size();
+            nanos += System.nanoTime() - inicio;
+            bytes += mx.getThreadAllocatedBytes(hilo) - bytesAntes;
+            entityManager.clear();
+        }
+        return new Medicion(nanos / MEDICIONES / 1_000_000, bytes / MEDICIONES, filas);
+    }
+
+    private record Medicion(long milis, long bytes, int filas) {
+    }
+}
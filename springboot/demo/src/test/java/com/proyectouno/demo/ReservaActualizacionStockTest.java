@@ -0,0 +1,142 @@
+package com.proyectouno.demo;
+
+import com.proyectouno.demo.Controller.ReservaController;
+import com.proyectouno.demo.DTO.ClienteDTO;
+import com.proyectouno.demo.DTO.DetalleReservaDTO;
+import com.proyectouno.demo.DTO.ProductoDTO;
+import com.proyectouno.demo.DTO.ReservaDTO;
+import com.proyectouno.demo.models.Producto;
+import com.proyectouno.demo.service.StockService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifica que modificar una reserva no pisa el stock que descontó otra reserva al mismo tiempo:
+ * el stock solo cambia con los UPDATE relativos de {@link StockService}, nunca con un valor
+ * absoluto calculado sobre una lectura anterior.
+ *
+ * La modificación y el descuento concurrente corren en transacciones propias, así que el test no
+ * es transaccional: crea sus datos antes de cada prueba y los borra al terminar.
+ */
+@SpringBootTest
+class ReservaActualizacionStockTest {
+
+    private static final int STOCK_INICIAL = 45;
+    private static final int CANTIDAD_RESERVADA = 5;
+
+    @Autowired
+    private ReservaController reservaController;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Long idCategoria;
+    private Long idProducto;
+    private Long idCliente;
+    private Long idReserva;
+    private String numeroReserva;
+
+    @BeforeEach
+    void crearReserva() {
+        String sufijo = Long.toString(System.nanoTime());
+        jdbcTemplate.update("INSERT INTO categorias (nombre, estado, fecha_creacion) VALUES (?, true, now())",
+                "Actualizacion " + sufijo);
+        idCategoria = jdbcTemplate.queryForObject(
+                "SELECT id_categoria FROM categorias WHERE nombre = ?", Long.class, "Actualizacion " + sufijo);
+        jdbcTemplate.update("INSERT INTO productos (codigo_barras, nombre, precio, stock_actual, stock_minimo, " +
+                "id_categoria, requiere_receta, es_controlado, estado, fecha_creacion) " +
+                "VALUES (?, 'Producto actualizacion', 3.00, ?, 0, ?, false, false, true, now())",
+                "ACT-" + sufijo, STOCK_INICIAL, idCategoria);
+        idProducto = jdbcTemplate.queryForObject(
+                "SELECT id_producto FROM productos WHERE codigo_barras = ?", Long.class, "ACT-" + sufijo);
+        String dni = sufijo.substring(sufijo.length() - 8);
+        jdbcTemplate.update("INSERT INTO clientes (nombre, dni, tiene_condicion_cronica, acepta_notificaciones, " +
+                "fecha_creacion) VALUES ('Cliente actualizacion', ?, false, true, now())", dni);
+        idCliente = jdbcTemplate.queryForObject(
+                "SELECT MAX(id_cliente) FROM clientes WHERE dni = ?", Long.class, dni);
+        // La reserva ya descontó sus unidades: STOCK_INICIAL es lo que quedó
+        numeroReserva = "ACT-" + sufijo;
+        jdbcTemplate.update("INSERT INTO reservas (numero_reserva, id_cliente, estado, total, fecha_reserva, " +
+                "fecha_limite_retiro) VALUES (?, ?, 'PENDIENTE', 15.00, now(), now() + interval '7 days')",
+                numeroReserva, idCliente);
+        idReserva = jdbcTemplate.queryForObject(
+                "SELECT id_reserva FROM reservas WHERE numero_reserva = ?", Long.class, numeroReserva);
+        jdbcTemplate.update("INSERT INTO detalle_reservas (id_reserva, id_producto, cantidad, precio_unitario, " +
+                "subtotal, disponible) VALUES (?, ?, ?, 3.00, 15.00, true)", idReserva, idProducto, CANTIDAD_RESERVADA);
+    }
+
+    @AfterEach
+    void borrarReserva() {
+        jdbcTemplate.update("DELETE FROM detalle_reservas WHERE id_reserva = ?", idReserva);
+        jdbcTemplate.update("DELETE FROM reservas WHERE id_reserva = ?", idReserva);
+        jdbcTemplate.update("DELETE FROM clientes WHERE id_cliente = ?", idCliente);
+        jdbcTemplate.update("DELETE FROM productos WHERE id_producto = ?", idProducto);
+        jdbcTemplate.update("DELETE FROM categorias WHERE id_categoria = ?", idCategoria);
+    }
+
+    @Test
+    void modificarUnaReservaNoPisaUnDescuentoConcurrente() throws Exception {
+        int nuevaCantidad = 8;
+        int descuentoConcurrente = 10;
+
+        ResponseEntity<?> respuesta = transactionTemplate.execute(status -> {
+            // La transacción de la modificación ya tiene el producto en el contexto de persistencia
+            // (como los proxies que deja findByReserva) cuando otra reserva descuenta y confirma
+            entityManager.find(Producto.class, idProducto).getStockActual();
+            CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(otra ->
+                    stockService.descontar(List.of(new StockService.Linea(idProducto, descuentoConcurrente)))))
+                    .orTimeout(30, TimeUnit.SECONDS)
+                    .join();
+            return reservaController.updateReserva(idReserva, modificacion(nuevaCantidad));
+        });
+
+        assertEquals(HttpStatus.OK, respuesta.getStatusCode(), String.valueOf(respuesta.getBody()));
+        int esperado = STOCK_INICIAL - descuentoConcurrente + CANTIDAD_RESERVADA - nuevaCantidad;
+        assertEquals(esperado, jdbcTemplate.queryForObject(
+                "SELECT stock_actual FROM productos WHERE id_producto = ?", Integer.class, idProducto));
+        // La respuesta muestra el stock que quedó en la base
+        ReservaDTO reserva = (ReservaDTO) respuesta.getBody();
+        assertEquals(esperado, reserva.getDetalles().get(0).getProducto().getStockActual());
+    }
+
+    private ReservaDTO modificacion(int cantidad) {
+        ReservaDTO reserva = new ReservaDTO();
+        ClienteDTO cliente = new ClienteDTO();
+        cliente.setIdCliente(idCliente);
+        reserva.setCliente(cliente);
+        reserva.setNumeroReserva(numeroReserva);
+        reserva.setEstado("PENDIENTE");
+        reserva.setFechaLimiteRetiro(LocalDateTime.now().plusDays(7));
+        DetalleReservaDTO detalle = new DetalleReservaDTO();
+        ProductoDTO producto = new ProductoDTO();
+        producto.setIdProducto(idProducto);
+        detalle.setProducto(producto);
+        detalle.setCantidad(cantidad);
+        reserva.setDetalles(List.of(detalle));
+        return reserva;
+    }
+}
@@ -0,0 +1,104 @@
+package com.proyectouno.demo;
+
+import com.proyectouno.demo.Controller.ReservaController;
+import com.proyectouno.demo.DTO.ReservaDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que listar reservas ejecuta la misma cantidad de consultas con pocas o muchas reservas:
+ * clientes, detalles, productos y categorías no se cargan uno por uno.
+ *
+ * Cuenta las sentencias con las estadísticas de Hibernate. Los datos se insertan dentro de la
+ * transacción del test y se descartan con el rollback.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class ReservaListadoConsultasTest {
+
+    // reservas con cliente y detalles con producto y categoría
+    private static final long MAX_CONSULTAS = 2;
+
+    @Autowired
+    private ReservaController reservaController;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void listarNoDependeDeLaCantidadDeReservas() {
+        insertarReservas(0, 2);
+        long conPocas = consultasAlListar();
+
+        insertarReservas(2, 40);
+        long conMuchas = consultasAlListar();
+
+        assertEquals(conPocas, conMuchas);
+        assertTrue(conMuchas <= MAX_CONSULTAS, "Se ejecutaron " + conMuchas + " consultas");
+    }
+
+    private long consultasAlListar() {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        entityManager.flush();
+        entityManager.clear();
+        estadisticas.clear();
+
+        @SuppressWarnings("unchecked")
+        List<ReservaDTO> reservas = (List<ReservaDTO>) reservaController.getAllReservas(false).getBody();
+        // Recorre todo lo que se serializaría
+        reservas.forEach(r -> r.getDetalles().forEach(d -> d.getProducto().getCategoriaNombre()));
+
+        return estadisticas.getPrepareStatementCount();
+    }
+
+    /**
+     * Inserta reservas con su propio cliente y dos detalles cada una, con productos de categorías distintas.
+     */
+    private void insertarReservas(int desde, int cantidad) {
+        for (int i = desde; i < desde + cantidad; i++) {
+            String dni = String.format("97%06d", i);
+            jdbcTemplate.update("INSERT INTO clientes (nombre, dni, tiene_condicion_cronica, acepta_notificaciones, " +
+                    "fecha_creacion) VALUES (?, ?, false, true, now())", "Cliente listado " + i, dni);
+            Long idCliente = jdbcTemplate.queryForObject(
+                    "SELECT MAX(id_cliente) FROM clientes WHERE dni = ?", Long.class, dni);
+            jdbcTemplate.update("INSERT INTO reservas (numero_reserva, id_cliente, estado, total, fecha_reserva, " +
+                    "fecha_limite_retiro) VALUES (?, ?, 'PENDIENTE', 10.00, now(), now() + interval '7 days')",
+                    "LIST-" + i, idCliente);
+            Long idReserva = jdbcTemplate.queryForObject(
+                    "SELECT id_reserva FROM reservas WHERE numero_reserva = ?", Long.class, "LIST-" + i);
+            for (int j = 0; j < 2; j++) {
+                String nombre = "Listado " + i + "-" + j;
+                jdbcTemplate.update("INSERT INTO categorias (nombre, estado, fecha_creacion) VALUES (?, true, now())", nombre);
+                Long idCategoria = jdbcTemplate.queryForObject(
+                        "SELECT MAX(id_categoria) FROM categorias WHERE nombre = ?", Long.class, nombre);
+                jdbcTemplate.update("INSERT INTO productos (codigo_barras, nombre, precio, stock_actual, stock_minimo, " +
+                        "id_categoria, requiere_receta, es_controlado, estado, fecha_creacion) " +
+                        "VALUES (?, ?, 5.00, 10, 1, ?, false, false, true, now())", "LIST-" + i + "-" + j, nombre, idCategoria);
+                Long idProducto = jdbcTemplate.queryForObject(
+                        "SELECT id_producto FROM productos WHERE codigo_barras = ?", Long.class, "LIST-" + i + "-" + j);
+                jdbcTemplate.update("INSERT INTO detalle_reservas (id_reserva, id_producto, cantidad, precio_unitario, " +
+                        "subtotal, disponible) VALUES (?, ?, 1, ?, ?, true)",
+                        idReserva, idProducto, new BigDecimal("5.00"), new BigDecimal("5.00"));
+            }
+        }
+    }
+}
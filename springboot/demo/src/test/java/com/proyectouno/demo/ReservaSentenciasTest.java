@@ -0,0 +1,176 @@
+package com.proyectouno.demo;
+
+import com.proyectouno.demo.Controller.ReservaController;
+import com.proyectouno.demo.DTO.ClienteDTO;
+import com.proyectouno.demo.DTO.DetalleReservaDTO;
+import com.proyectouno.demo.DTO.ProductoDTO;
+import com.proyectouno.demo.DTO.ReservaDTO;
+import com.proyectouno.demo.service.NumeroReservaGenerador;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que crear una reserva ejecuta una cantidad fija de sentencias SQL sin importar cuántos
+ * productos tenga: los productos se leen en una consulta y detalles y stock se escriben en batch.
+ *
+ * Cuenta las ejecuciones en el DataSource (un batch cuenta como una). Los datos se insertan dentro
+ * de la transacción del test y se descartan con el rollback.
+ */
+@SpringBootTest
+@Transactional
+class ReservaSentenciasTest {
+
+    // cliente, productos, batch de stock, INSERT reserva, batch de detalles y la lectura de
+    // detalles (con producto y categoría) de la respuesta
+    private static final int MAX_SENTENCIAS = 6;
+
+    private static final AtomicLong sentencias = new AtomicLong();
+
+    @Autowired
+    private ReservaController reservaController;
+
+    @Autowired
+    private NumeroReservaGenerador numeroReservaGenerador;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void crearReservaNoDependeDeLaCantidadDeProductos() {
+        Long idCliente = insertarCliente();
+        List<Long> productos = insertarProductos(20);
+        // El generador consulta la secuencia una vez por bloque; se fuerza antes de medir
+        numeroReservaGenerador.siguiente(LocalDateTime.now());
+
+        long conUno = sentenciasAlCrear(idCliente, productos.subList(0, 1));
+        long conVeinte = sentenciasAlCrear(idCliente, productos);
+
+        assertEquals(conUno, conVeinte);
+        assertTrue(conVeinte <= MAX_SENTENCIAS, "Se ejecutaron " + conVeinte + " sentencias");
+    }
+
+    private long sentenciasAlCrear(Long idCliente, List<Long> productos) {
+        ReservaDTO reserva = new ReservaDTO();
+        ClienteDTO cliente = new ClienteDTO();
+        cliente.setIdCliente(idCliente);
+        reserva.setCliente(cliente);
+        reserva.setEstado("PENDIENTE");
+        List<DetalleReservaDTO> detalles = new ArrayList<>();
+        for (Long idProducto : productos) {
+            DetalleReservaDTO detalle = new DetalleReservaDTO();
+            ProductoDTO producto = new ProductoDTO();
+            producto.setIdProducto(idProducto);
+            detalle.setProducto(producto);
+            detalle.setCantidad(2);
+            detalles.add(detalle);
+        }
+        reserva.setDetalles(detalles);
+
+        // Cada reserva parte con el contexto de persistencia vacío, como en una solicitud real
+        entityManager.flush();
+        entityManager.clear();
+        long antes = sentencias.get();
+        ResponseEntity<?> respuesta = reservaController.createReserva(reserva);
+        // Incluye el flush que haría el commit
+        entityManager.flush();
+        long ejecutadas = sentencias.get() - antes;
+
+        assertEquals(HttpStatus.CREATED, respuesta.getStatusCode(), String.valueOf(respuesta.getBody()));
+        assertEquals(productos.size(), ((ReservaDTO) respuesta.getBody()).getDetalles().size());
+        return ejecutadas;
+    }
+
+    private Long insertarCliente() {
+        jdbcTemplate.update("INSERT INTO clientes (nombre, dni, tiene_condicion_cronica, acepta_notificaciones, " +
+                "fecha_creacion) VALUES ('Cliente sentencias', '99999990', false, true, now())");
+        return jdbcTemplate.queryForObject("SELECT MAX(id_cliente) FROM clientes WHERE dni = '99999990'", Long.class);
+    }
+
+    private List<Long> insertarProductos(int cantidad) {
+        jdbcTemplate.update("INSERT INTO categorias (nombre, estado, fecha_creacion) VALUES ('Sentencias', true, now())");
+        Long idCategoria = jdbcTemplate.queryForObject(
+                "SELECT MAX(id_categoria) FROM categorias WHERE nombre = 'Sentencias'", Long.class);
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> filas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            filas.add(new Object[]{"SENT-" + i, "Producto sentencias " + i, new BigDecimal("4.50"), 100, 5,
+                    idCategoria, ahora});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO productos (codigo_barras, nombre, precio, stock_actual, stock_minimo, " +
+                "id_categoria, requiere_receta, es_controlado, estado, fecha_creacion) " +
+                "VALUES (?, ?, ?, ?, ?, ?, false, false, true, ?)", filas);
+        return jdbcTemplate.queryForList("SELECT id_producto FROM productos WHERE id_categoria = ? ORDER BY id_producto",
+                Long.class, idCategoria);
+    }
+
+    @TestConfiguration
+    static class ContadorSentencias {
+
+        /**
+         * Envuelve el DataSource para contar cada execute* de los Statement que entrega.
+         */
+        @Bean
+        static BeanPostProcessor contadorSentenciasPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource) {
+                        return envolver(dataSource, DataSource.class);
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T envolver(T destino, Class<T> tipo) {
+            InvocationHandler handler = (proxy, metodo, args) -> {
+                Object resultado;
+                try {
+                    resultado = metodo.invoke(destino, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (resultado instanceof Connection conexion && metodo.getReturnType() == Connection.class) {
+                    return envolver(conexion, Connection.class);
+                }
+                if (resultado instanceof Statement statement && Statement.class.isAssignableFrom(metodo.getReturnType())) {
+                    return envolver(statement, (Class<Statement>) metodo.getReturnType());
+                }
+                if (destino instanceof Statement && metodo.getName().startsWith("execute")) {
+                    sentencias.incrementAndGet();
+                }
+                return resultado;
+            };
+            return (T) Proxy.newProxyInstance(ReservaSentenciasTest.class.getClassLoader(), new Class<?>[]{tipo}, handler);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.proyectouno.demo;
+
+import com.proyectouno.demo.exceptions.StockInsuficienteException;
+import com.proyectouno.demo.service.StockService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de estrés del descuento de stock: muchas reservas simultáneas sobre los mismos productos
+ * no pueden vender más unidades de las que hay.
+ *
+ * Cada reserva corre en su propia transacción (como en la aplicación), así que el test no es
+ * transaccional: crea sus productos antes de cada prueba y los borra al terminar.
+ */
+@SpringBootTest
+class StockConcurrenciaTest {
+
+    private static final int STOCK_INICIAL = 50;
+    private static final int HILOS = 16;
+    private static final int RESERVAS_POR_HILO = 25;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long idCategoria;
+    private List<Long> productos;
+
+    @BeforeEach
+    void crearProductos() {
+        jdbcTemplate.update("INSERT INTO categorias (nombre, estado, fecha_creacion) VALUES ('Concurrencia', true, now())");
+        idCategoria = jdbcTemplate.queryForObject(
+                "SELECT MAX(id_categoria) FROM categorias WHERE nombre = 'Concurrencia'", Long.class);
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> filas = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            filas.add(new Object[]{"CONC-" + idCategoria + "-" + i, "Producto concurrencia " + i,
+                    new BigDecimal("3.00"), STOCK_INICIAL, idCategoria, ahora});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO productos (codigo_barras, nombre, precio, stock_actual, stock_minimo, " +
+                "id_categoria, requiere_receta, es_controlado, estado, fecha_creacion) " +
+                "VALUES (?, ?, ?, ?, 0, ?, false, false, true, ?)", filas);
+        productos = jdbcTemplate.queryForList(
+                "SELECT id_producto FROM productos WHERE id_categoria = ? ORDER BY id_producto", Long.class, idCategoria);
+    }
+
+    @AfterEach
+    void borrarProductos() {
+        jdbcTemplate.update("DELETE FROM productos WHERE id_categoria = ?", idCategoria);
+        jdbcTemplate.update("DELETE FROM categorias WHERE id_categoria = ?", idCategoria);
+    }
+
+    @Test
+    void reservasSimultaneasNoVendenMasQueElStock() throws Exception {
+        // Cada reserva pide 1 a 3 unidades de los tres productos, en distinto orden según el hilo;
+        // la demanda total supera varias veces el stock
+        List<int[]> vendidas = new ArrayList<>();
+        AtomicInteger rechazadas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        List<Future<int[]>> resultados = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            resultados.add(executor.submit(() -> {
+                int[] porProducto = new int[productos.size()];
+                largada.await();
+                for (int r = 0; r < RESERVAS_POR_HILO; r++) {
+                    List<StockService.Linea> lineas = new ArrayList<>();
+                    for (int p = 0; p < productos.size(); p++) {
+                        int indice = (p + hilo) % productos.size();
+                        lineas.add(new StockService.Linea(productos.get(indice), 1 + (hilo + r + p) % 3));
+                    }
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> stockService.descontar(lineas));
+                        for (StockService.Linea linea : lineas) {
+                            porProducto[productos.indexOf(linea.idProducto())] += linea.cantidad();
+                        }
+                    } catch (StockInsuficienteException e) {
+                        rechazadas.incrementAndGet();
+                    }
+                }
+                return porProducto;
+            }));
+        }
+        largada.countDown();
+        for (Future<int[]> resultado : resultados) {
+            vendidas.add(resultado.get(2, TimeUnit.MINUTES));
+        }
+        executor.shutdown();
+
+        assertTrue(rechazadas.get() > 0, "La demanda debía superar el stock");
+        for (int p = 0; p < productos.size(); p++) {
+            int total = 0;
+            for (int[] porProducto : vendidas) {
+                total += porProducto[p];
+            }
+            int stock = jdbcTemplate.queryForObject(
+                    "SELECT stock_actual FROM productos WHERE id_producto = ?", Integer.class, productos.get(p));
+            assertTrue(stock >= 0, "Stock negativo: " + stock);
+            assertEquals(STOCK_INICIAL - total, stock);
+        }
+    }
+
+    @Test
+    void informaExactamenteLasLineasSinStockYNoDescuentaNada() {
+        List<StockService.Linea> lineas = List.of(
+                new StockService.Linea(productos.get(0), 10),
+                new StockService.Linea(productos.get(1), STOCK_INICIAL + 1),
+                new StockService.Linea(productos.get(2), 5),
+                new StockService.Linea(productos.get(0), STOCK_INICIAL));
+
+        StockInsuficienteException e = assertThrows(StockInsuficienteException.class,
+                () -> transactionTemplate.executeWithoutResult(status -> stockService.descontar(lineas)));
+
+        assertEquals(List.of(1, 3), e.getLineas().stream().map(StockInsuficienteException.LineaSinStock::linea).toList());
+        for (Long idProducto : productos) {
+            assertEquals(STOCK_INICIAL, jdbcTemplate.queryForObject(
+                    "SELECT stock_actual FROM productos WHERE id_producto = ?", Integer.class, idProducto));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.proyectouno.demo.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba la cubeta de tokens del filtro con un reloj controlado por el test.
+ */
+class RateLimitFilterTest {
+
+    // Un valor arbitrario: System.nanoTime no tiene origen fijo
+    private final AtomicLong reloj = new AtomicLong(123_456_789_000L);
+
+    @Test
+    void admiteUnaRafagaDeExactamenteLaCapacidad() throws Exception {
+        RateLimitFilter filtro = filtro("/api/**=3/60");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, solicitar(filtro, "/api/productos").getStatus());
+        }
+        assertEquals(429, solicitar(filtro, "/api/productos").getStatus());
+    }
+
+    @Test
+    void recargaUnTokenPorIntervalo() throws Exception {
+        // 3 por minuto: un token cada 20 segundos
+        RateLimitFilter filtro = filtro("/api/**=3/60");
+        agotar(filtro, 3);
+
+        avanzar(19_999);
+        assertEquals(429, solicitar(filtro, "/api/productos").getStatus());
+        avanzar(1);
+        assertEquals(200, solicitar(filtro, "/api/productos").getStatus());
+        assertEquals(429, solicitar(filtro, "/api/productos").getStatus());
+
+        // Después de la ventana completa vuelve a admitir la ráfaga entera
+        avanzar(60_000);
+        agotar(filtro, 3);
+    }
+
+    @Test
+    void retryAfterRedondeaHaciaArribaLosSegundosQueFaltan() throws Exception {
+        RateLimitFilter filtro = filtro("/api/**=3/60");
+        agotar(filtro, 3);
+
+        MockHttpServletResponse rechazada = solicitar(filtro, "/api/productos");
+        assertEquals("20", rechazada.getHeader("Retry-After"));
+        assertTrue(rechazada.getContentAsString().contains("20 segundos"));
+
+        avanzar(5_500);
+        assertEquals("15", solicitar(filtro, "/api/productos").getHeader("Retry-After"));
+
+        avanzar(14_499);
+        assertEquals("1", solicitar(filtro, "/api/productos").getHeader("Retry-After"));
+    }
+
+    @Test
+    void cadaClienteTieneSuCubeta() throws Exception {
+        RateLimitFilter filtro = filtro("/api/**=1/60");
+
+        assertEquals(200, solicitar(filtro, "/api/productos", "10.0.0.1").getStatus());
+        assertEquals(429, solicitar(filtro, "/api/productos", "10.0.0.1").getStatus());
+        assertEquals(200, solicitar(filtro, "/api/productos", "10.0.0.2").getStatus());
+    }
+
+    @Test
+    void aplicaLaPrimeraReglaQueCoincide() throws Exception {
+        RateLimitFilter filtro = filtro(" /api/chat-ai/** = 1/60 , /api/**=2/60,");
+
+        assertEquals(200, solicitar(filtro, "/api/chat-ai").getStatus());
+        assertEquals(429, solicitar(filtro, "/api/chat-ai").getStatus());
+        // La otra regla tiene su propia cubeta
+        agotar(filtro, 2);
+        // Las rutas sin regla no se limitan
+        for (int i = 0; i < 10; i++) {
+            MockHttpServletResponse respuesta = solicitar(filtro, "/login");
+            assertEquals(200, respuesta.getStatus());
+            assertNull(respuesta.getHeader("Retry-After"));
+        }
+    }
+
+    @Test
+    void sinReglasNoLimitaNada() throws Exception {
+        RateLimitFilter filtro = filtro("");
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, solicitar(filtro, "/api/productos").getStatus());
+        }
+    }
+
+    @Test
+    void unaReglaMalFormadaIndicaCualEs() {
+        for (String regla : new String[] {"/api/**", "/api/**=20", "/api/**=veinte/60", "/api/**=20/60/1",
+                "=20/60", "/api/**=0/60", "/api/**=20/0"}) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> filtro("/api/auth/**=10/60," + regla));
+            assertTrue(e.getMessage().contains("'" + regla + "'"), e.getMessage());
+        }
+    }
+
+    private RateLimitFilter filtro(String rutas) {
+        return new RateLimitFilter(true, rutas, reloj::get);
+    }
+
+    private void avanzar(long milisegundos) {
+        reloj.addAndGet(TimeUnit.MILLISECONDS.toNanos(milisegundos));
+    }
+
+    private void agotar(RateLimitFilter filtro, int capacidad) throws Exception {
+        for (int i = 0; i < capacidad; i++) {
+            assertEquals(200, solicitar(filtro, "/api/productos").getStatus());
+        }
+        assertEquals(429, solicitar(filtro, "/api/productos").getStatus());
+    }
+
+    private MockHttpServletResponse solicitar(RateLimitFilter filtro, String uri) throws Exception {
+        return solicitar(filtro, uri, "127.0.0.1");
+    }
+
+    private MockHttpServletResponse solicitar(RateLimitFilter filtro, String uri, String ip) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRemoteAddr(ip);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filtro.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,49 @@
+package com.proyectouno.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Prueba que una invalidación durante la carga no deje en la caché un valor anterior a ella.
+ */
+class CacheLruTtlTest {
+
+    private final CacheLruTtl<String, String> cache = new CacheLruTtl<>(10, 60);
+
+    @Test
+    void guardaLoQueCarga() {
+        assertEquals("v1", cache.getOrLoad("k", k -> "v1"));
+        assertEquals("v1", cache.get("k"));
+    }
+
+    @Test
+    void noGuardaUnaCargaQueEmpezoAntesDeInvalidar() {
+        // Simula una escritura confirmada (y su invalidación) mientras la carga leía el valor viejo
+        String cargado = cache.getOrLoad("k", k -> {
+            cache.invalidateAll();
+            return "viejo";
+        });
+
+        assertEquals("viejo", cargado);
+        assertNull(cache.get("k"));
+        assertEquals("nuevo", cache.getOrLoad("k", k -> "nuevo"));
+        assertEquals("nuevo", cache.get("k"));
+    }
+
+    @Test
+    void cualquierInvalidacionDescartaLaCarga() {
+        cache.getOrLoad("a", k -> {
+            cache.invalidate("otra");
+            return "viejo";
+        });
+        cache.getOrLoad("b", k -> {
+            cache.invalidateIf(c -> c.startsWith("x"));
+            return "viejo";
+        });
+
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+}
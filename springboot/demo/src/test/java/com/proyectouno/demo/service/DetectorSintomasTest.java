@@ -0,0 +1,111 @@
+package com.proyectouno.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proyectouno.demo.models.Sintoma;
+import com.proyectouno.demo.repository.SintomaRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Prueba el autómata de Aho-Corasick del detector de síntomas con síntomas armados en memoria.
+ */
+@ExtendWith(MockitoExtension.class)
+class DetectorSintomasTest {
+
+    @Mock
+    private SintomaRepository sintomaRepository;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private DetectorSintomas detector;
+
+    @Test
+    void sinSintomasNoDetectaNada() {
+        assertTrue(detector.detectar("me duele la cabeza").isEmpty());
+
+        // El repositorio vacío deja un autómata sin patrones
+        detector.reconstruir();
+
+        assertEquals(0, detector.cantidadPatrones());
+        assertTrue(detector.detectar("me duele la cabeza").isEmpty());
+        assertTrue(detector.detectar("").isEmpty());
+    }
+
+    @Test
+    void detectaPalabrasClaveDeVariasPalabras() {
+        cargar(sintoma(1L, "Cefalea", "[\"dolor de cabeza\"]"));
+
+        List<DetectorSintomas.Coincidencia> coincidencias = detector.detectar("Tengo dolores en la cabeza");
+
+        assertEquals(1, coincidencias.size());
+        assertEquals(1L, coincidencias.get(0).idSintoma());
+        assertEquals(List.of("dolor de cabeza"), coincidencias.get(0).palabras());
+        // Las palabras sueltas no alcanzan
+        assertTrue(detector.detectar("tengo dolor de espalda y la cabeza bien").isEmpty());
+    }
+
+    @Test
+    void unPatronQueEsSufijoDeOtroTambienCoincide() {
+        cargar(sintoma(1L, "Dolor de cabeza", null),
+               sintoma(2L, "Cefalea", "[\"cabeza\"]"));
+
+        List<DetectorSintomas.Coincidencia> coincidencias = detector.detectar("tengo dolor de cabeza");
+
+        assertEquals(List.of(1L, 2L), coincidencias.stream().map(DetectorSintomas.Coincidencia::idSintoma).toList());
+        assertEquals(List.of(2L), detector.detectar("me golpeé la cabeza").stream()
+                .map(DetectorSintomas.Coincidencia::idSintoma).toList());
+    }
+
+    @Test
+    void detectaPatronesSuperpuestos() {
+        cargar(sintoma(1L, "Faringitis", "[\"dolor de garganta\"]"),
+               sintoma(2L, "Irritación", "[\"garganta irritada\"]"));
+
+        List<DetectorSintomas.Coincidencia> coincidencias = detector.detectar("dolor de garganta irritada");
+
+        assertEquals(List.of(1L, 2L), coincidencias.stream().map(DetectorSintomas.Coincidencia::idSintoma).toList());
+    }
+
+    @Test
+    void ignoraTildesYMayusculas() {
+        cargar(sintoma(1L, "Migraña", "[\"náuseas\"]"));
+
+        List<DetectorSintomas.Coincidencia> coincidencias = detector.detectar("Tengo MIGRAÑAS y NAUSEAS");
+
+        assertEquals(1, coincidencias.size());
+        assertEquals(List.of("Migraña", "náuseas"), coincidencias.get(0).palabras());
+    }
+
+    @Test
+    void soloCoincidenPalabrasCompletas() {
+        cargar(sintoma(1L, "Tos", null));
+
+        assertTrue(detector.detectar("comí una tostada").isEmpty());
+        assertEquals(1, detector.detectar("tengo tos seca").size());
+    }
+
+    private void cargar(Sintoma... sintomas) {
+        when(sintomaRepository.findAll()).thenReturn(List.of(sintomas));
+        detector.reconstruir();
+    }
+
+    private static Sintoma sintoma(Long id, String nombre, String palabrasClave) {
+        Sintoma sintoma = new Sintoma();
+        sintoma.setIdSintoma(id);
+        sintoma.setNombre(nombre);
+        sintoma.setPalabrasClave(palabrasClave);
+        return sintoma;
+    }
+}
@@ -0,0 +1,234 @@
+package com.proyectouno.demo.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba el cliente del LLM contra un servidor local que imita la API de Groq (SSE).
+ */
+class LlmGatewayTest {
+
+    private HttpServer servidor;
+    private String url;
+
+    @BeforeEach
+    void iniciarServidor() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // Un hilo por solicitud: algunas pruebas dejan una respuesta colgada mientras llega otra
+        servidor.setExecutor(Executors.newCachedThreadPool());
+        servidor.start();
+        url = "http://127.0.0.1:" + servidor.getAddress().getPort() + "/v1/chat/completions";
+    }
+
+    @AfterEach
+    void detenerServidor() {
+        servidor.stop(0);
+    }
+
+    @Test
+    void entregaCadaFragmentoAntesDeQueTermineLaRespuesta() throws Exception {
+        CountDownLatch primerFragmentoRecibido = new CountDownLatch(1);
+        AtomicReference<String> cuerpoRecibido = new AtomicReference<>();
+        AtomicReference<String> autorizacion = new AtomicReference<>();
+
+        servidor.createContext("/v1/chat/completions", exchange -> {
+            cuerpoRecibido.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            autorizacion.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream salida = exchange.getResponseBody()) {
+                escribir(salida, "data: {\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}\n\n");
+                escribir(salida, "data: {\"choices\":[{\"delta\":{\"content\":\"Sí, tenemos\"}}]}\n\n");
+                // El resto solo se envía cuando el cliente ya procesó el primer fragmento
+                primerFragmentoRecibido.await(5, TimeUnit.SECONDS);
+                escribir(salida, "data: {\"choices\":[{\"delta\":{\"content\":\" paracetamol.\"}}]}\n\n");
+                escribir(salida, "data: [DONE]\n\n");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        List<String> fragmentos = new CopyOnWriteArrayList<>();
+        LlmGateway gateway = new LlmGateway(url, "modelo-prueba", "clave-prueba", HttpClient.newHttpClient());
+        gateway.streamear("sistema", "¿tienen paracetamol?", fragmento -> {
+            fragmentos.add(fragmento);
+            primerFragmentoRecibido.countDown();
+        }).get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of("Sí, tenemos", " paracetamol."), fragmentos);
+        assertEquals("Bearer clave-prueba", autorizacion.get());
+        assertTrue(cuerpoRecibido.get().contains("\"stream\":true"));
+        assertTrue(cuerpoRecibido.get().contains("¿tienen paracetamol?"));
+    }
+
+    @Test
+    void fallaSiElServidorRespondeConError() {
+        servidor.createContext("/v1/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            byte[] cuerpo = "{\"error\":\"rate limit\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(429, cuerpo.length);
+            try (OutputStream salida = exchange.getResponseBody()) {
+                salida.write(cuerpo);
+            }
+        });
+
+        LlmGateway gateway = new LlmGateway(url, "modelo-prueba", "clave-prueba", HttpClient.newHttpClient());
+        ExecutionException error = assertThrows(ExecutionException.class, () ->
+                gateway.streamear("sistema", "hola", fragmento -> { }).get(10, TimeUnit.SECONDS));
+        assertInstanceOf(LlmGateway.LlmException.class, error.getCause());
+        assertTrue(error.getCause().getMessage().contains("429"));
+    }
+
+    @Test
+    void abreElCircuitoTrasFallosSeguidosYFallaSinLlamarAlServidor() throws Exception {
+        AtomicInteger llamadas = new AtomicInteger();
+        servidor.createContext("/v1/chat/completions", exchange -> {
+            llamadas.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+
+        LlmGateway gateway = new LlmGateway(url, "modelo-prueba", "clave-prueba", HttpClient.newHttpClient(),
+                new LlmGateway.Limites(2, 100, 5_000, 2, 60_000));
+        for (int i = 0; i < 2; i++) {
+            ExecutionException error = assertThrows(ExecutionException.class, () ->
+                    gateway.completar("sistema", "hola").get(10, TimeUnit.SECONDS));
+            assertInstanceOf(LlmGateway.LlmException.class, error.getCause());
+        }
+
+        ExecutionException error = assertThrows(ExecutionException.class, () ->
+                gateway.completar("sistema", "hola").get(10, TimeUnit.SECONDS));
+        assertInstanceOf(LlmGateway.LlmNoDisponibleException.class, error.getCause());
+        assertEquals(2, llamadas.get());
+        assertFalse(gateway.disponible());
+        assertEquals("ABIERTO", gateway.estadisticas().get("circuito"));
+        assertEquals(1L, gateway.estadisticas().get("rechazadasCircuito"));
+    }
+
+    @Test
+    void unConsumidorQueFallaNoAbreElCircuito() {
+        servidor.createContext("/v1/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream salida = exchange.getResponseBody()) {
+                escribir(salida, "data: {\"choices\":[{\"delta\":{\"content\":\"Hola\"}}]}\n\n");
+                escribir(salida, "data: [DONE]\n\n");
+            } catch (IOException e) {
+                // El cliente cortó la descarga
+            }
+        });
+
+        LlmGateway gateway = new LlmGateway(url, "modelo-prueba", "clave-prueba", HttpClient.newHttpClient(),
+                new LlmGateway.Limites(2, 100, 5_000, 1, 60_000));
+        ExecutionException error = assertThrows(ExecutionException.class, () ->
+                gateway.streamear("sistema", "hola", fragmento -> {
+                    throw new UncheckedIOException(new IOException("Broken pipe"));
+                }).get(10, TimeUnit.SECONDS));
+
+        assertInstanceOf(LlmGateway.ConsumidorException.class, error.getCause());
+        assertTrue(gateway.disponible());
+        assertEquals("CERRADO", gateway.estadisticas().get("circuito"));
+        assertEquals(1L, gateway.estadisticas().get("cortadasPorCliente"));
+        assertEquals(0L, gateway.estadisticas().get("fallos"));
+    }
+
+    @Test
+    void alVencerElPlazoCortaLaDescargaYLiberaElLugar() throws Exception {
+        AtomicInteger llamadas = new AtomicInteger();
+        CountDownLatch fin = new CountDownLatch(1);
+        servidor.createContext("/v1/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream salida = exchange.getResponseBody()) {
+                escribir(salida, "data: {\"choices\":[{\"delta\":{\"content\":\"Hola\"}}]}\n\n");
+                if (llamadas.incrementAndGet() == 1) {
+                    // La primera respuesta no termina nunca (hasta el final de la prueba)
+                    fin.await(10, TimeUnit.SECONDS);
+                }
+                escribir(salida, "data: [DONE]\n\n");
+            } catch (IOException | InterruptedException e) {
+                // El cliente cortó la descarga
+            }
+        });
+
+        LlmGateway gateway = new LlmGateway(url, "modelo-prueba", "clave-prueba", HttpClient.newHttpClient(),
+                new LlmGateway.Limites(1, 2_000, 300, 5, 60_000));
+        try {
+            ExecutionException error = assertThrows(ExecutionException.class, () ->
+                    gateway.streamear("sistema", "hola", fragmento -> { }).get(10, TimeUnit.SECONDS));
+            assertInstanceOf(TimeoutException.class, error.getCause());
+
+            // Con un solo lugar, la segunda llamada solo puede hacerse si la primera se cortó
+            gateway.streamear("sistema", "hola", fragmento -> { }).get(10, TimeUnit.SECONDS);
+            assertEquals(0, gateway.estadisticas().get("enCurso"));
+            assertEquals(1L, gateway.estadisticas().get("timeouts"));
+        } finally {
+            fin.countDown();
+        }
+    }
+
+    @Test
+    void sinLugarEsperaSinBloquearYLuegoRechaza() throws Exception {
+        CountDownLatch fin = new CountDownLatch(1);
+        servidor.createContext("/v1/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                fin.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+
+        LlmGateway gateway = new LlmGateway(url, "modelo-prueba", "clave-prueba", HttpClient.newHttpClient(),
+                new LlmGateway.Limites(1, 300, 5_000, 5, 60_000));
+        try {
+            gateway.completar("sistema", "primera");
+
+            long inicio = System.nanoTime();
+            CompletableFuture<String> segunda = gateway.completar("sistema", "segunda");
+            // La llamada vuelve enseguida aunque tenga que esperar un lugar
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) < 100);
+            assertEquals(1, gateway.estadisticas().get("enCola"));
+
+            ExecutionException error = assertThrows(ExecutionException.class, () -> segunda.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(LlmGateway.LlmNoDisponibleException.class, error.getCause());
+            assertEquals(1L, gateway.estadisticas().get("rechazadasBulkhead"));
+            assertEquals(0, gateway.estadisticas().get("enCola"));
+        } finally {
+            fin.countDown();
+        }
+    }
+
+    private static void escribir(OutputStream salida, String texto) throws IOException {
+        salida.write(texto.getBytes(StandardCharsets.UTF_8));
+        salida.flush();
+    }
+}
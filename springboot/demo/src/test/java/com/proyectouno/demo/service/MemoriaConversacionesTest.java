@@ -0,0 +1,67 @@
+package com.proyectouno.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba los ids y el registro de turnos de la memoria del chat.
+ */
+class MemoriaConversacionesTest {
+
+    private final MemoriaConversaciones memoria = new MemoriaConversaciones(100, 100_000, 30);
+
+    @Test
+    void noAceptaIdsElegidosPorElCliente() {
+        String id = memoria.idValido("conversacion-de-otro");
+
+        assertNotEquals("conversacion-de-otro", id);
+        assertTrue(memoria.historial(id).isEmpty());
+    }
+
+    @Test
+    void aceptaLosIdsQueEmitio() {
+        String id = memoria.idValido(null);
+        memoria.registrar(id, "¿Tienen ibuprofeno?", "Sí, hay stock.");
+
+        assertEquals(id, memoria.idValido(id));
+        assertEquals(2, memoria.historial(id).size());
+    }
+
+    @Test
+    void turnosSimultaneosNoSePierden() throws Exception {
+        String id = memoria.idValido(null);
+        int hilos = 8;
+        int turnosPorHilo = 50;
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            int hilo = h;
+            tareas.add(executor.submit(() -> {
+                largada.await();
+                for (int t = 0; t < turnosPorHilo; t++) {
+                    memoria.registrar(id, "pregunta " + hilo + "-" + t, "respuesta");
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(hilos * turnosPorHilo * 2, memoria.historial(id).size());
+    }
+}
@@ -0,0 +1,50 @@
+package com.proyectouno.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Prueba el separador de líneas CSV de la importación de productos.
+ */
+class ProductoImportadorCsvTest {
+
+    @Test
+    void separaPorComas() {
+        assertEquals(List.of("7790001", "Ibuprofeno 400", "12.50"),
+                ProductoImportador.parsearCsv("7790001,Ibuprofeno 400,12.50"));
+    }
+
+    @Test
+    void conservaLasComasEntreComillas() {
+        assertEquals(List.of("7790002", "Paracetamol, 500 mg", "8"),
+                ProductoImportador.parsearCsv("7790002,\"Paracetamol, 500 mg\",8"));
+    }
+
+    @Test
+    void dosComillasDentroDeComillasSonUnaComilla() {
+        assertEquals(List.of("Jarabe \"infantil\"", "x"),
+                ProductoImportador.parsearCsv("\"Jarabe \"\"infantil\"\"\",x"));
+    }
+
+    @Test
+    void mantieneLosCamposVacios() {
+        assertEquals(List.of("", "a", "", ""), ProductoImportador.parsearCsv(",a,,"));
+        assertEquals(List.of(""), ProductoImportador.parsearCsv(""));
+    }
+
+    @Test
+    void noRecortaEspacios() {
+        // El recorte lo hace quien arma el DTO
+        assertEquals(List.of(" a ", " b"), ProductoImportador.parsearCsv(" a , b"));
+    }
+
+    @Test
+    void unaComillaSinCerrarTomaElRestoDeLaLinea() {
+        // Un campo con salto de línea llega partido en dos líneas: la primera queda con la comilla abierta
+        assertEquals(List.of("7790003", "Crema, uso externo"),
+                ProductoImportador.parsearCsv("7790003,\"Crema, uso externo"));
+    }
+}